@@ -25,6 +25,10 @@ android {
             )
         }
     }
+    androidResources {
+        // El modelo se mapea en memoria desde el APK; comprimido habría que copiarlo antes
+        noCompress += "tflite"
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
@@ -40,7 +44,6 @@ dependencies {
     // Usa las dependencias oficiales de TensorFlow Lite (versión estable más reciente)
     implementation("org.tensorflow:tensorflow-lite:2.14.0")  // Runtime principal
     implementation("org.tensorflow:tensorflow-lite-support:0.4.4")  // Utilidades para pre/post-procesamiento
-    implementation("org.tensorflow:tensorflow-lite-task-audio:0.4.4")  // Procesamiento de audio
     implementation("org.tensorflow:tensorflow-lite-metadata:0.4.4")
     implementation("com.google.android.gms:play-services-location:21.0.1")
 
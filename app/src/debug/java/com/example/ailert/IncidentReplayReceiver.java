@@ -0,0 +1,113 @@
+package com.example.ailert;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Debug;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reproduce los WAV de {@code files/incidentes} (almacenamiento externo de la app) por el
+ * pipeline de detección con el modelo real y registra latencia y coste por hora de audio.
+ *
+ * Los archivos se nombran {@code <etiqueta>-<inicio_ms>-<descripcion>.wav}, por ejemplo
+ * {@code gun_shot-12000-calle.wav}; la latencia se mide desde ese inicio hasta el primer
+ * incidente confirmado de la etiqueta.
+ */
+public class IncidentReplayReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "AIlert";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        PendingResult pending = goAsync();
+        Context appContext = context.getApplicationContext();
+        new Thread(() -> {
+            try {
+                replayAll(appContext);
+            } finally {
+                pending.finish();
+            }
+        }, "AIlert-replay").start();
+    }
+
+    private void replayAll(Context context) {
+        File dir = context.getExternalFilesDir("incidentes");
+        File[] files = dir != null ? dir.listFiles((d, name) -> name.endsWith(".wav")) : null;
+        if (files == null || files.length == 0) {
+            Log.w(TAG, "No hay incidentes en " + dir);
+            return;
+        }
+        Arrays.sort(files);
+
+        SharedPreferences preferences = context.getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE);
+        long totalAudioMs = 0;
+        long totalCpuNanos = 0;
+        int detected = 0;
+        long latencySumMs = 0;
+
+        ClassifierConfig config = ClassifierConfig.fromPreferences(preferences);
+        try (ClassifierPool.Lease classifier = ClassifierPool.acquire(context, config)) {
+            int modelRate = classifier.getSampleRate();
+            int windowSize = classifier.getWindowSize();
+            // Mismo salto que la detección en vivo (por defecto media ventana)
+            long windowMs = windowSize * 1000L / modelRate;
+            long hopMs = Math.max(1, Math.min(preferences.getLong("salto_ms", windowMs / 2), windowMs));
+            int hopSize = (int) Math.min(windowSize, hopMs * modelRate / 1000);
+
+            for (File file : files) {
+                String[] parts = file.getName().replace(".wav", "").split("-", 3);
+                String expected = parts[0];
+                long onsetMs = parts.length > 1 ? parseLong(parts[1]) : 0;
+
+                try (WavFileSource source = WavFileSource.open(file)) {
+                    if (source.getSampleRate() != modelRate) {
+                        Log.w(TAG, file.getName() + ": " + source.getSampleRate() + " Hz, el modelo espera " + modelRate);
+                        continue;
+                    }
+                    IncidentReplay.Report report = IncidentReplay.run(source, windowSize, hopSize, DetectionPipeline.MAX_BATCH, classifier,
+                            new SoundActivityGate(preferences.getFloat("vad_margen_db", 10f), 12f, 3),
+                            DetectionConfig.fromValues(preferences.getAll()), Debug::threadCpuTimeNanos);
+                    totalAudioMs += report.audioMs;
+                    totalCpuNanos += report.cpuNanos;
+
+                    IncidentReplay.Event event = report.firstEvent(expected);
+                    String outcome;
+                    if (event != null) {
+                        detected++;
+                        latencySumMs += event.audioTimeMs - onsetMs;
+                        outcome = "detectado a los " + (event.audioTimeMs - onsetMs) + " ms";
+                    } else {
+                        outcome = "NO detectado";
+                    }
+                    Log.i(TAG, "Replay " + file.getName() + ": " + outcome + "; " + report);
+                } catch (IOException e) {
+                    Log.e(TAG, "No se pudo reproducir " + file.getName(), e);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "No se pudo cargar el modelo para el replay", e);
+            return;
+        }
+
+        double audioHours = totalAudioMs / 3_600_000.0;
+        Log.i(TAG, "Replay total: " + detected + "/" + files.length + " incidentes detectados"
+                + (detected > 0 ? ", latencia media " + latencySumMs / detected + " ms" : "")
+                + ", " + (audioHours > 0 ? String.format(Locale.US, "%.1f", totalCpuNanos / 1e9 / audioHours) : "0")
+                + " s CPU por hora de audio");
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
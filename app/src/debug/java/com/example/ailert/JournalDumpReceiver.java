@@ -0,0 +1,40 @@
+package com.example.ailert;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.io.File;
+
+/**
+ * Vuelca al registro el diario de detecciones ({@code files/diario}) para revisar un
+ * incidente. Con el extra {@code desde_ms} sólo se muestran los registros posteriores.
+ */
+public class JournalDumpReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "AIlert";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        PendingResult pending = goAsync();
+        File directory = new File(context.getFilesDir(), "diario");
+        long sinceMs = intent.getLongExtra("desde_ms", 0);
+        new Thread(() -> {
+            try {
+                DetectionJournal.Scanner scanner = DetectionJournal.scan(directory);
+                int shown = 0;
+                DetectionJournal.Record record;
+                while ((record = scanner.next()) != null) {
+                    if (record.timestampMs >= sinceMs) {
+                        Log.i(TAG, "Diario " + record);
+                        shown++;
+                    }
+                }
+                Log.i(TAG, "Diario: " + shown + " registros");
+            } finally {
+                pending.finish();
+            }
+        }, "AIlert-diario-volcado").start();
+    }
+}
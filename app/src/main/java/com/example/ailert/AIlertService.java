@@ -1,19 +1,53 @@
 package com.example.ailert;
 
+import android.Manifest;
 import android.app.Notification;
 import android.app.NotificationChannel;
+import android.app.AlarmManager;
 import android.app.NotificationManager;
+import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Binder;
 import android.os.Build;
 import android.os.IBinder;
+import android.os.SystemClock;
+import android.util.Log;
 
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
 
 public class AIlertService extends Service {
 
     public static final String CHANNEL_ID = "AIlertServiceChannel";
+    // Identificadores de todas las notificaciones de la app; cada una reemplaza sólo a la suya
+    public static final int NOTIFICATION_ID_SERVICE = 1;
+    public static final int NOTIFICATION_ID_LOCATION = 2;
+    public static final int NOTIFICATION_ID_STOPPED = 3;
+    /** {@link SystemClock#elapsedRealtime()} en que se pidió arrancar; sirve para medir el arranque. */
+    public static final String EXTRA_REQUESTED_AT = "solicitado_en";
+    /** Marca los arranques programados por el supervisor tras una parada inesperada. */
+    static final String EXTRA_RESTART = "reinicio";
+
+    // Un servicio que aguanta esto arrancado ya no cuenta como parte de un bucle de fallos
+    private static final long STABLE_RUN_MS = 10 * 60_000;
+
+    private static final String TAG = "AIlert";
+
+    private final IBinder binder = new LocalBinder();
+    private DetectionEngine engine;
+    private final RestartSupervisor supervisor = RestartSupervisor.withDefaults();
+    private long startedAt;
+    private boolean gaveUp;
+
+    public class LocalBinder extends Binder {
+        public DetectionEngine getEngine() {
+            return engine;
+        }
+    }
 
     @Override
     public void onCreate() {
@@ -28,27 +62,163 @@ public class AIlertService extends Service {
                 .setPriority(NotificationCompat.PRIORITY_HIGH)
                 .build();
 
-        startForeground(1, notification);
+        try {
+            startForeground(NOTIFICATION_ID_SERVICE, notification);
+        } catch (IllegalStateException | SecurityException e) {
+            // Android 12+ rechaza el primer plano sin una exención de arranque en segundo plano,
+            // y Android 14 además exige poder usar el micrófono en ese momento
+            Log.e(TAG, "No se pudo pasar a primer plano", e);
+            gaveUp = true;
+            notifyStopped("AIlert no pudo reanudarse", "Ábrelo para volver a activar la detección.");
+            stopSelf();
+            return;
+        }
+        startedAt = SystemClock.elapsedRealtime();
+        supervisor.decode(getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE).getString("supervisor_reinicios", ""));
+
+        // El modelo y el micrófono se preparan una sola vez por vida del servicio
+        engine = new DetectionEngine(this);
+        engine.prepare();
+
+        // Mantiene caliente la caché de ubicación para que las alertas no esperen al GPS
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
+            startForegroundService(new Intent(this, LocationService.class));
+        }
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        // Aquí podrías iniciar tareas como sensores o reconocimiento de sonido
+        // Sin intent lo reinició el sistema (START_STICKY); con EXTRA_RESTART, el supervisor
+        if (engine == null) {
+            // onCreate no consiguió el primer plano y ya pidió detenerse
+            return START_NOT_STICKY;
+        }
+        boolean restart = intent == null || intent.getBooleanExtra(EXTRA_RESTART, false);
+        long now = System.currentTimeMillis();
+        if (restart && !getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE).getBoolean("service_running", false)) {
+            // El usuario lo desarmó mientras esperaba el reinicio
+            gaveUp = true;
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        if (restart) {
+            supervisor.recordRestart(now);
+            if (supervisor.isCrashLooping(now)) {
+                giveUp();
+                return START_NOT_STICKY;
+            }
+            Log.i(TAG, "Reinicio del servicio, " + supervisor.getRecentRestarts(now) + " recientes");
+        } else {
+            // Lo pidió el usuario o el encendido del teléfono: empieza un historial nuevo
+            supervisor.reset();
+        }
+        saveSupervisor();
+
+        engine.start();
+        if (intent != null && intent.hasExtra(EXTRA_REQUESTED_AT) && engine.isListening()) {
+            recordStartup(intent.getLongExtra(EXTRA_REQUESTED_AT, 0));
+        }
         return START_STICKY;
     }
 
+    private void recordStartup(long requestedAt) {
+        long now = SystemClock.elapsedRealtime();
+        long startupMs = now - requestedAt;
+        PipelineMetrics.getInstance().record(PipelineMetrics.Stage.STARTUP, startupMs * 1_000_000L);
+        // Se guarda el último valor para poder consultarlo después de un arranque sin interfaz
+        getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE).edit()
+                .putLong("arranque_ms", startupMs)
+                .putLong("arranque_desde_encendido_ms", now)
+                .apply();
+        Log.i(TAG, "Escuchando " + startupMs + " ms después de pedir el arranque, " + now + " ms desde el encendido");
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
-        // Reinicia el servicio si se detiene inesperadamente
-        Intent restartServiceIntent = new Intent(getApplicationContext(), AIlertService.class);
-        startForegroundService(restartServiceIntent);
+        if (engine == null) {
+            return;
+        }
+        engine.release();
+        stopService(new Intent(this, LocationService.class));
+
+        // Reinicia el servicio sólo si se detuvo inesperadamente estando activo
+        boolean armed = getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE)
+                .getBoolean("service_running", false);
+        if (armed && !gaveUp) {
+            scheduleRestart();
+        }
+    }
+
+    /**
+     * Programa el reinicio con espera exponencial en lugar de arrancar de inmediato. Sólo una
+     * alarma exacta puede arrancar un servicio en primer plano desde segundo plano en
+     * Android 12+; si el usuario no concedió las alarmas exactas se usa una inexacta, y si el
+     * sistema rechaza ese arranque onCreate avisa al usuario.
+     */
+    private void scheduleRestart() {
+        long now = System.currentTimeMillis();
+        if (SystemClock.elapsedRealtime() - startedAt >= STABLE_RUN_MS) {
+            supervisor.reset();
+            saveSupervisor();
+        }
+        long delayMs = supervisor.nextDelayMs(now);
+        Intent restartIntent = new Intent(getApplicationContext(), AIlertService.class)
+                .putExtra(EXTRA_RESTART, true);
+        PendingIntent pendingIntent = PendingIntent.getForegroundService(getApplicationContext(), 0, restartIntent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        AlarmManager alarmManager = getSystemService(AlarmManager.class);
+        if (alarmManager == null) {
+            return;
+        }
+        long triggerAt = SystemClock.elapsedRealtime() + delayMs;
+        boolean exact = Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms();
+        try {
+            if (exact) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, pendingIntent);
+            } else {
+                alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, pendingIntent);
+            }
+        } catch (SecurityException e) {
+            // El usuario revocó el permiso entre la comprobación y la llamada
+            alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, pendingIntent);
+        }
+        Log.w(TAG, "Servicio detenido inesperadamente; reinicio en " + delayMs + " ms");
+    }
+
+    /** Demasiados reinicios seguidos: se desarma y se avisa en lugar de seguir gastando batería. */
+    private void giveUp() {
+        gaveUp = true;
+        Log.e(TAG, "El servicio se reinició " + supervisor.getRecentRestarts(System.currentTimeMillis())
+                + " veces en poco tiempo; se detiene la detección");
+        getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE).edit()
+                .putBoolean("service_running", false)
+                .apply();
+        notifyStopped("AIlert se detuvo", "El servicio falló varias veces seguidas. Ábrelo para volver a activarlo.");
+        stopSelf();
+    }
+
+    private void notifyStopped(String title, String text) {
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        if (manager != null) {
+            manager.notify(NOTIFICATION_ID_STOPPED, new NotificationCompat.Builder(this, CHANNEL_ID)
+                    .setContentTitle(title)
+                    .setContentText(text)
+                    .setSmallIcon(R.drawable.ic_shield)
+                    .build());
+        }
+    }
+
+    private void saveSupervisor() {
+        getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE).edit()
+                .putString("supervisor_reinicios", supervisor.encode())
+                .apply();
     }
 
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
     }
 
     private void createNotificationChannel() {
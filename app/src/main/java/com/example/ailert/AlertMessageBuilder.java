@@ -0,0 +1,45 @@
+package com.example.ailert;
+
+/**
+ * Arma el texto de las alertas de emergencia a partir del sonido detectado.
+ */
+public final class AlertMessageBuilder {
+
+    private AlertMessageBuilder() {
+    }
+
+    public static String reasonFor(String detectedSound) {
+        if (detectedSound.contains("gun_shot")) {
+            return "Posible sonido de disparos detectado.";
+        } else if (detectedSound.contains("screams")) {
+            return "Posibles gritos de auxilio detectados.";
+        } else if (detectedSound.contains("glass_breaking")) {
+            return "Posible rotura de vidrio detectada.";
+        } else if (detectedSound.contains("crackling_fire")) {
+            return "Posible sonido de fuego detectado.";
+        } else if (detectedSound.contains("siren")) {
+            return "Posibles sirenas de emergencia detectadas.";
+        } else {
+            return "Alerta de seguridad activada.";
+        }
+    }
+
+    /** Mensaje base del usuario, motivo, sonido detectado y, si hay, resumen de movimiento. */
+    public static String build(String baseMessage, String detectedSound, String movement) {
+        StringBuilder message = new StringBuilder(baseMessage.length() + 160)
+                .append(baseMessage)
+                .append("\n\n")
+                .append(reasonFor(detectedSound))
+                .append("\nDetectado: ")
+                .append(detectedSound);
+        if (movement != null) {
+            message.append('\n').append(movement);
+        }
+        return message.toString();
+    }
+
+    public static String withLocation(String message, double latitude, double longitude, boolean current) {
+        return message + (current ? "\nUbicación aproximada: " : "\nÚltima ubicación conocida: ")
+                + "http://maps.google.com/maps?q=" + latitude + "," + longitude;
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.ailert;
+
+import android.app.Activity;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+import android.telephony.SmsManager;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bandeja de salida de alertas SMS. Cada mensaje se guarda en disco ({@link OutboxStore})
+ * y sólo se borra cuando el sistema confirma el envío, así que una alerta no se pierde
+ * aunque el proceso muera a mitad de camino.
+ *
+ * El hilo de detección sólo llama a {@link #enqueue}, que encola en memoria y deja la
+ * escritura en disco a un hilo propio; todas las escrituras, borrados y recargas pasan
+ * por ese hilo en orden, así que el disco nunca resucita un mensaje ya enviado. El envío,
+ * el seguimiento de enviado/entregado y los reintentos con espera exponencial ocurren en
+ * otros hilos.
+ * Hay un mensaje por destinatario y varios hilos de envío, así que un contacto lento
+ * o con reintentos no retrasa a los demás. Los textos largos se parten en varios SMS
+ * y un mensaje sólo cuenta como enviado o entregado cuando lo están todas sus partes.
+ */
+public class AlertOutbox {
+
+    private static final String TAG = "AIlert";
+
+    static final String ACTION_SMS_SENT = "com.example.ailert.SMS_SENT";
+    static final String ACTION_SMS_DELIVERED = "com.example.ailert.SMS_DELIVERED";
+    private static final String EXTRA_ID = "alert_id";
+    private static final String EXTRA_ATTEMPT = "alert_intento";
+    private static final String URI_SCHEME = "ailert";
+
+    private static final int QUEUE_CAPACITY = 32;
+    // Envíos simultáneos como máximo; el resto de destinatarios espera en la cola
+    private static final int DISPATCHERS = 3;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MS = 5_000;
+    private static final long MAX_BACKOFF_MS = 5 * 60_000;
+    private static final long SENT_TIMEOUT_MS = 60_000;
+    private static final long DELIVERY_WAIT_MS = 30 * 60_000;
+
+    public enum Status { PENDING, SENDING, SENT, DELIVERED, FAILED }
+
+    public interface StatusListener {
+        void onStatusChanged(long id, String phoneNumber, Status status);
+    }
+
+    private final Context context;
+    private final OutboxStore store;
+    private final BlockingQueue<OutboxEntry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<Long, OutboxEntry> inFlight = new ConcurrentHashMap<>();
+    // Sólo mensajes vivos: un estado final se borra en cuanto su archivo ya no está en disco
+    private final Map<Long, Status> statuses = new ConcurrentHashMap<>();
+    // Último estado por número, en el orden en que se encolaron los contactos
+    private final Map<String, Status> recipientStatuses = new LinkedHashMap<>();
+    private final Set<Long> awaitingRetry = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    // Único hilo que toca el disco: el orden de escrituras y borrados es el de las llamadas
+    private final ExecutorService disk = Executors.newSingleThreadExecutor(r -> new Thread(r, "AIlert-sms-disco"));
+    private final AtomicLong nextId = new AtomicLong(System.currentTimeMillis());
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+    private volatile StatusListener statusListener;
+    private Thread[] dispatchers;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            long id = intent.getLongExtra(EXTRA_ID, -1);
+            int attempt = intent.getIntExtra(EXTRA_ATTEMPT, -1);
+            OutboxEntry entry = inFlight.get(id);
+            if (entry == null) {
+                return;
+            }
+            if (ACTION_SMS_SENT.equals(intent.getAction())) {
+                onSentResult(entry, attempt, getResultCode());
+            } else if (ACTION_SMS_DELIVERED.equals(intent.getAction())) {
+                onDelivered(entry, attempt);
+            }
+        }
+    };
+
+    public AlertOutbox(Context context) {
+        this.context = context.getApplicationContext();
+        this.store = new OutboxStore(new File(this.context.getFilesDir(), "outbox"));
+    }
+
+    public void start() {
+        if (dispatchers != null) {
+            return;
+        }
+        if (!store.ensureDirectory()) {
+            Log.e(TAG, "No se pudo crear la bandeja de salida");
+        }
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(ACTION_SMS_SENT);
+        filter.addAction(ACTION_SMS_DELIVERED);
+        // Cada parte lleva su propia URI para que sus PendingIntent no se confundan
+        filter.addDataScheme(URI_SCHEME);
+        ContextCompat.registerReceiver(context, receiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+
+        // Mensajes que quedaron pendientes si el proceso murió antes de confirmar el envío
+        requestReload();
+
+        dispatchers = new Thread[DISPATCHERS];
+        for (int i = 0; i < DISPATCHERS; i++) {
+            dispatchers[i] = new Thread(this::dispatchLoop, "AIlert-sms-" + (i + 1));
+            dispatchers[i].start();
+        }
+    }
+
+    public void shutdown() {
+        if (dispatchers == null) {
+            return;
+        }
+        for (Thread dispatcher : dispatchers) {
+            dispatcher.interrupt();
+        }
+        dispatchers = null;
+        scheduler.shutdownNow();
+        // Las escrituras ya pedidas terminan; un mensaje encolado no se queda sin guardar
+        disk.shutdown();
+        try {
+            context.unregisterReceiver(receiver);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Receiver de SMS no registrado", e);
+        }
+    }
+
+    public void setStatusListener(StatusListener listener) {
+        this.statusListener = listener;
+    }
+
+    /** Estado de un mensaje aún en curso, o null si no existe o ya terminó. */
+    public Status getStatus(long id) {
+        return statuses.get(id);
+    }
+
+    /** Estado del último mensaje de cada destinatario, en orden de prioridad de los contactos. */
+    public Map<String, Status> getRecipientStatuses() {
+        synchronized (recipientStatuses) {
+            return new LinkedHashMap<>(recipientStatuses);
+        }
+    }
+
+    /**
+     * Encola el mismo mensaje para cada contacto, en orden. Cada destinatario se envía y
+     * reintenta por separado; devuelve los ids en el mismo orden que {@code contacts}.
+     */
+    public long[] enqueue(List<EmergencyContact> contacts, String message, long detectedAtNanos) {
+        long[] ids = new long[contacts.size()];
+        for (int i = 0; i < ids.length; i++) {
+            // Se ofrece uno a uno: el primer contacto sale sin esperar a los demás
+            ids[i] = enqueue(contacts.get(i).number, message, detectedAtNanos);
+        }
+        return ids;
+    }
+
+    /**
+     * Encola un mensaje y pide guardarlo en disco en el hilo de disco. No bloquea ni hace
+     * E/S: pensado para el hilo de detección.
+     */
+    public long enqueue(String phoneNumber, String message) {
+        return enqueue(phoneNumber, message, 0);
+    }
+
+    /**
+     * Igual que {@link #enqueue(String, String)}, indicando el {@link System#nanoTime()} en que se
+     * confirmó el incidente para medir la latencia de detección a SMS enviado.
+     */
+    public long enqueue(String phoneNumber, String message, long detectedAtNanos) {
+        OutboxEntry entry = new OutboxEntry(nextId.incrementAndGet(), phoneNumber, message, 0);
+        entry.detectedAtNanos = detectedAtNanos;
+        persist(entry);
+        setStatus(entry, Status.PENDING);
+        offer(entry);
+        return entry.id;
+    }
+
+    private void offer(OutboxEntry entry) {
+        if (!queue.offer(entry)) {
+            // Sigue en disco; se recarga cuando la cola se vacíe
+            overflowed.set(true);
+            Log.w(TAG, "Cola de alertas llena, el mensaje " + entry.id + " espera en disco");
+        }
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (queue.isEmpty() && overflowed.compareAndSet(true, false)) {
+                    requestReload();
+                }
+                OutboxEntry entry = queue.take();
+                // Una recarga de disco pudo encolar dos veces el mismo mensaje
+                if (inFlight.putIfAbsent(entry.id, entry) != null) {
+                    continue;
+                }
+                send(entry);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(OutboxEntry entry) {
+        SmsManager smsManager = SmsManager.getDefault();
+        ArrayList<String> parts = smsManager.divideMessage(entry.message);
+        int attempt = entry.beginAttempt(parts.size());
+        // El intento cuenta aunque el proceso muera antes del acuse
+        persist(entry);
+
+        ArrayList<PendingIntent> sentIntents = new ArrayList<>(parts.size());
+        ArrayList<PendingIntent> deliveredIntents = new ArrayList<>(parts.size());
+        for (int part = 0; part < parts.size(); part++) {
+            sentIntents.add(resultIntent(ACTION_SMS_SENT, entry, attempt, part));
+            deliveredIntents.add(resultIntent(ACTION_SMS_DELIVERED, entry, attempt, part));
+        }
+
+        setStatus(entry, Status.SENDING);
+        entry.timeout = scheduler.schedule(() -> {
+            if (abandonAttempt(entry, attempt)) {
+                Log.w(TAG, "Sin confirmación de envío para la alerta " + entry.id);
+                retry(entry);
+            }
+        }, SENT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        try {
+            if (parts.size() > 1) {
+                smsManager.sendMultipartTextMessage(entry.phoneNumber, null, parts, sentIntents, deliveredIntents);
+            } else {
+                smsManager.sendTextMessage(entry.phoneNumber, null, entry.message, sentIntents.get(0), deliveredIntents.get(0));
+            }
+            Log.d(TAG, "Intento " + attempt + " de envío de SMS a " + entry.phoneNumber + " (" + parts.size() + " partes)");
+        } catch (Exception e) {
+            Log.e(TAG, "Error al enviar SMS", e);
+            if (abandonAttempt(entry, attempt)) {
+                retry(entry);
+            }
+        }
+    }
+
+    /** PendingIntent distinto por mensaje, intento y parte; el intento permite ignorar acuses viejos. */
+    private PendingIntent resultIntent(String action, OutboxEntry entry, int attempt, int part) {
+        Intent intent = new Intent(action)
+                .setPackage(context.getPackageName())
+                .setData(Uri.parse(URI_SCHEME + "://sms/" + entry.id + "/" + attempt + "/" + part))
+                .putExtra(EXTRA_ID, entry.id)
+                .putExtra(EXTRA_ATTEMPT, attempt);
+        return PendingIntent.getBroadcast(context, (int) entry.id, intent, PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /** Da por perdido el intento en curso; false si ya terminó o es un intento anterior. */
+    private boolean abandonAttempt(OutboxEntry entry, int attempt) {
+        if (!entry.abandon(attempt)) {
+            return false;
+        }
+        if (entry.timeout != null) {
+            entry.timeout.cancel(false);
+        }
+        inFlight.remove(entry.id);
+        return true;
+    }
+
+    private void onSentResult(OutboxEntry entry, int attempt, int resultCode) {
+        if (resultCode != Activity.RESULT_OK) {
+            // Basta una parte fallida para reintentar el mensaje completo
+            if (abandonAttempt(entry, attempt)) {
+                Log.w(TAG, "Fallo de envío de la alerta " + entry.id + ", código " + resultCode);
+                retry(entry);
+            }
+            return;
+        }
+        if (!entry.partSent(attempt)) {
+            return;
+        }
+        if (entry.timeout != null) {
+            entry.timeout.cancel(false);
+        }
+        recordSent(entry);
+        // Queda en inFlight hasta el acuse de entrega, pero ya no hace falta en disco
+        delete(entry);
+        setStatus(entry, Status.SENT);
+        scheduler.schedule(() -> inFlight.remove(entry.id), DELIVERY_WAIT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void onDelivered(OutboxEntry entry, int attempt) {
+        if (!entry.partDelivered(attempt)) {
+            return;
+        }
+        inFlight.remove(entry.id);
+        setStatus(entry, Status.DELIVERED);
+    }
+
+    private void retry(OutboxEntry entry) {
+        int attempts = entry.getAttempts();
+        if (attempts >= MAX_ATTEMPTS) {
+            Log.e(TAG, "Alerta " + entry.id + " descartada tras " + attempts + " intentos");
+            PipelineMetrics.getInstance().countSms(false);
+            delete(entry);
+            setStatus(entry, Status.FAILED);
+            return;
+        }
+        long delay = Math.min(BASE_BACKOFF_MS << (attempts - 1), MAX_BACKOFF_MS);
+        setStatus(entry, Status.PENDING);
+        awaitingRetry.add(entry.id);
+        try {
+            scheduler.schedule(() -> {
+                awaitingRetry.remove(entry.id);
+                offer(entry);
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // El planificador ya se detuvo; el mensaje sigue en disco para el próximo inicio
+            Log.w(TAG, "Reintento no programado para la alerta " + entry.id, e);
+        }
+    }
+
+    private void recordSent(OutboxEntry entry) {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        long now = System.nanoTime();
+        metrics.countSms(true);
+        metrics.record(PipelineMetrics.Stage.SMS, now - entry.enqueuedAtNanos);
+        // Los mensajes recargados de disco no conservan el instante de detección
+        if (entry.detectedAtNanos != 0) {
+            metrics.record(PipelineMetrics.Stage.DETECTION_TO_SMS, now - entry.detectedAtNanos);
+        }
+    }
+
+    private void setStatus(OutboxEntry entry, Status status) {
+        statuses.put(entry.id, status);
+        if (status == Status.SENT || status == Status.DELIVERED || status == Status.FAILED) {
+            // El hilo de disco ya tiene encolado el borrado del archivo y las recargas anteriores
+            // a él: después de eso ninguna recarga puede volver a ofrecer el mensaje
+            runOnDisk(() -> statuses.remove(entry.id, status));
+        }
+        synchronized (recipientStatuses) {
+            recipientStatuses.put(entry.phoneNumber, status);
+        }
+        StatusListener listener = statusListener;
+        if (listener != null) {
+            listener.onStatusChanged(entry.id, entry.phoneNumber, status);
+        }
+    }
+
+    private void requestReload() {
+        runOnDisk(this::reloadFromDisk);
+    }
+
+    /** Sólo en el hilo de disco, detrás de cualquier borrado pendiente. */
+    private void reloadFromDisk() {
+        List<String> discarded = new ArrayList<>();
+        for (OutboxEntry entry : store.readAll(discarded)) {
+            Status status = statuses.get(entry.id);
+            // Ya terminado en esta vida del proceso, o todavía en curso
+            if (status == Status.SENT || status == Status.DELIVERED || status == Status.FAILED
+                    || inFlight.containsKey(entry.id) || awaitingRetry.contains(entry.id) || queue.contains(entry)) {
+                continue;
+            }
+            statuses.put(entry.id, Status.PENDING);
+            offer(entry);
+        }
+        for (String name : discarded) {
+            Log.e(TAG, "Alerta ilegible en disco descartada: " + name);
+        }
+    }
+
+    private void persist(OutboxEntry entry) {
+        runOnDisk(() -> {
+            try {
+                store.write(entry);
+            } catch (IOException e) {
+                Log.e(TAG, "No se pudo guardar la alerta " + entry.id + " en disco", e);
+            }
+        });
+    }
+
+    private void delete(OutboxEntry entry) {
+        runOnDisk(() -> {
+            if (!store.delete(entry.id)) {
+                Log.w(TAG, "No se pudo borrar la alerta " + entry.id + " del disco");
+            }
+        });
+    }
+
+    private void runOnDisk(Runnable task) {
+        try {
+            disk.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Bandeja de salida detenida; operación de disco omitida", e);
+        }
+    }
+
+    /** Número de mensajes aún no confirmados en disco. */
+    public int getPendingCount() {
+        return store.count();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.ailert;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+
+/**
+ * Hilo dedicado que lee una {@link AudioSource} (normalmente el micrófono) de forma
+ * continua y vuelca las muestras en un {@link AudioRingBuffer}. No hace ningún otro
+ * trabajo para no perder audio, salvo alimentar el pre-roll de {@link EvidenceRecorder}
+ * si hay uno, que sólo copia muestras.
+ */
+public class AudioCaptureThread extends Thread {
+
+    private static final String TAG = "AIlert";
+
+    private final AudioSource source;
+    private final AudioRingBuffer ringBuffer;
+    private final EvidenceRecorder evidence;
+    private final float[] chunk;
+    private volatile boolean running = true;
+
+    public AudioCaptureThread(AudioSource source, AudioRingBuffer ringBuffer) {
+        this(source, ringBuffer, null);
+    }
+
+    /** {@code evidence} puede ser null si no se guardan clips de los incidentes. */
+    public AudioCaptureThread(AudioSource source, AudioRingBuffer ringBuffer, EvidenceRecorder evidence) {
+        super("AIlert-captura");
+        this.source = source;
+        this.ringBuffer = ringBuffer;
+        this.evidence = evidence;
+        // Bloques de ~100 ms: suficiente para no despertar al hilo de más
+        this.chunk = new float[Math.max(source.getSampleRate() / 10, 256)];
+    }
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        try {
+            while (running) {
+                int read = source.read(chunk, 0, chunk.length);
+                if (read > 0) {
+                    ringBuffer.write(chunk, 0, read);
+                    if (evidence != null) {
+                        evidence.write(chunk, 0, read);
+                    }
+                } else if (read < 0) {
+                    Log.i(TAG, "Fin de la fuente de audio");
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                Log.e(TAG, "Error leyendo audio", e);
+            }
+        } finally {
+            if (evidence != null) {
+                // Un incidente justo antes de detener conserva lo que se alcanzó a grabar
+                evidence.flush();
+            }
+        }
+    }
+
+    /** Detiene el bucle; el llamador debe detener la fuente para desbloquear la lectura. */
+    public void shutdown() {
+        running = false;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.ailert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffer circular sin bloqueos para un único productor (hilo de captura) y un único
+ * consumidor (hilo de inferencia).
+ *
+ * Las ventanas pueden solaparse: empieza una nueva cada {@code hopSize} muestras (con
+ * {@code hopSize = windowSize / 2}, 50 % de solape), así que un golpe corto que cae en el
+ * borde de una ventana queda entero en la siguiente.
+ *
+ * Política de descarte: {@link #awaitWindows} entrega en orden hasta un máximo de
+ * ventanas pendientes para clasificarlas en lote. Las que no caben se descartan y se
+ * cuentan en {@link #getWindowsDropped()}. Si el productor sobrescribe una ventana
+ * mientras se copia, la lectura se repite y se cuenta en {@link #getOverruns()}. Los
+ * bloques del productor se parten para que siempre quede una ventana intacta que leer.
+ */
+public class AudioRingBuffer {
+
+    private final float[] data;
+    private final int mask;
+    private final int windowSize;
+    private final int hopSize;
+
+    // Total de muestras escritas desde el inicio; sólo lo modifica el productor
+    private final AtomicLong written = new AtomicLong();
+    private volatile Thread consumer;
+    // Mayor bloque escrito hasta ahora; acota lo que el productor puede estar pisando
+    private volatile int maxChunk;
+    private volatile long lastWriteNanos;
+
+    // Estado del consumidor
+    private long readEnd;
+    // Sólo se escribe, como barrera de carga tras copiar una ventana (ver copyWindow)
+    private volatile int copyFence;
+
+    private final AtomicLong windowsConsumed = new AtomicLong();
+    private final AtomicLong windowsDropped = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+
+    public AudioRingBuffer(int windowSize, int capacityInWindows) {
+        this(windowSize, windowSize, capacityInWindows);
+    }
+
+    public AudioRingBuffer(int windowSize, int hopSize, int capacityInWindows) {
+        if (windowSize <= 0 || hopSize <= 0 || hopSize > windowSize || capacityInWindows < 2) {
+            throw new IllegalArgumentException("Tamaño de ventana, salto o capacidad inválidos");
+        }
+        int capacity = Integer.highestOneBit(windowSize * capacityInWindows - 1) << 1;
+        this.data = new float[capacity];
+        this.mask = capacity - 1;
+        this.windowSize = windowSize;
+        this.hopSize = hopSize;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    public int getCapacity() {
+        return data.length;
+    }
+
+    /** Llamado sólo desde el hilo de captura. */
+    public void write(float[] src, int offset, int length) {
+        if (length > data.length) {
+            offset += length - data.length;
+            length = data.length;
+        }
+        // Un bloque mayor dejaría al consumidor sin ninguna ventana que no pueda estar pisándose
+        int maxWrite = data.length - windowSize;
+        while (length > maxWrite) {
+            writeChunk(src, offset, maxWrite);
+            offset += maxWrite;
+            length -= maxWrite;
+        }
+        writeChunk(src, offset, length);
+    }
+
+    private void writeChunk(float[] src, int offset, int length) {
+        if (length > maxChunk) {
+            maxChunk = length;
+        }
+        long w = written.get();
+        int start = (int) (w & mask);
+        int first = Math.min(length, data.length - start);
+        System.arraycopy(src, offset, data, start, first);
+        if (first < length) {
+            System.arraycopy(src, offset + first, data, 0, length - first);
+        }
+        lastWriteNanos = System.nanoTime();
+        written.lazySet(w + length);
+
+        Thread waiting = consumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+    }
+
+    /**
+     * Espera ventanas nuevas y copia en orden, en {@code dst[0..n)}, hasta {@code max} de las
+     * pendientes, terminando cada una {@code hopSize} muestras después de la anterior. Si hay
+     * más de {@code max}, se conservan las más recientes. Llamado sólo desde el hilo de inferencia.
+     *
+     * @return ventanas copiadas; 0 si se agotó el tiempo o el hilo fue interrumpido
+     */
+    public int awaitWindows(float[][] dst, int max, long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        consumer = Thread.currentThread();
+        try {
+            while (true) {
+                long w = written.get();
+                long first = Math.max(readEnd + hopSize, windowSize);
+                if (w >= first) {
+                    long pending = (w - first) / hopSize + 1;
+                    int count = (int) Math.min(pending, max);
+                    first += (pending - count) * hopSize;
+                    boolean intact = true;
+                    for (int i = 0; i < count && intact; i++) {
+                        intact = copyWindow(dst[i], first + (long) i * hopSize);
+                    }
+                    if (intact) {
+                        if (pending > count) {
+                            windowsDropped.addAndGet(pending - count);
+                        }
+                        readEnd = first + (long) (count - 1) * hopSize;
+                        windowsConsumed.addAndGet(count);
+                        return count;
+                    }
+                    overruns.incrementAndGet();
+                    // Las más antiguas ya se pisaron: se avanza hasta lo que sigue en el anillo
+                    readEnd = Math.max(readEnd, w - data.length + windowSize + maxChunk - hopSize);
+                    if (deadline - System.nanoTime() <= 0 || Thread.currentThread().isInterrupted()) {
+                        return 0;
+                    }
+                    continue;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                    return 0;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            consumer = null;
+        }
+    }
+
+    private boolean copyWindow(float[] dst, long end) {
+        long begin = end - windowSize;
+        int start = (int) (begin & mask);
+        int first = Math.min(windowSize, data.length - start);
+        System.arraycopy(data, start, dst, 0, first);
+        if (first < windowSize) {
+            System.arraycopy(data, 0, dst, first, windowSize - first);
+        }
+        // Java 8 no tiene VarHandle.acquireFence(): las lecturas del arreglo no pueden pasar
+        // detrás de una escritura volátil, ni ésta detrás de la lectura volátil de written,
+        // así que la validación ve al productor al menos tan avanzado como la copia
+        copyFence = 0;
+        // Si el productor avanzó (o puede estar escribiendo) más allá de la capacidad,
+        // la copia pudo quedar corrupta
+        return written.get() + maxChunk - begin <= data.length;
+    }
+
+    public long getSamplesWritten() {
+        return written.get();
+    }
+
+    public long getWindowsConsumed() {
+        return windowsConsumed.get();
+    }
+
+    public long getWindowsDropped() {
+        return windowsDropped.get();
+    }
+
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    /** {@link System#nanoTime()} de la última escritura; sirve para medir cuánto esperó la ventana. */
+    public long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+}
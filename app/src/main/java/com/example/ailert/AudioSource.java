@@ -0,0 +1,28 @@
+package com.example.ailert;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Origen de audio mono en float [-1, 1]: el micrófono, un archivo grabado o un generador.
+ * Las fuentes en vivo bloquean en {@link #read}; las de archivo entregan el audio tan
+ * rápido como se consuma, lo que permite reproducir incidentes más rápido que el tiempo real.
+ */
+public interface AudioSource extends Closeable {
+
+    int getSampleRate();
+
+    /** true si el audio llega al ritmo del reloj (micrófono). */
+    boolean isLive();
+
+    void start() throws IOException;
+
+    /**
+     * Lee hasta {@code length} muestras en {@code dst}.
+     *
+     * @return muestras leídas, o -1 si la fuente terminó
+     */
+    int read(float[] dst, int offset, int length) throws IOException;
+
+    void stop();
+}
@@ -1,20 +1,46 @@
 package com.example.ailert;
 
+import android.Manifest;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
 
+import androidx.core.content.ContextCompat;
+
+/**
+ * Al encender el teléfono vuelve a armar la detección si estaba activa antes de apagarlo,
+ * sin abrir ninguna pantalla.
+ */
 public class BootReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "AIlert";
+
     @Override
     public void onReceive(Context context, Intent intent) {
-        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
-            Intent serviceIntent = new Intent(context, AIlertService.class);
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                context.startForegroundService(serviceIntent);
-            } else {
-                context.startService(serviceIntent);
-            }
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+            return;
+        }
+        boolean armed = context.getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE)
+                .getBoolean("service_running", false);
+        if (!armed) {
+            return;
+        }
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+            Log.w(TAG, "Detección armada pero sin permiso de micrófono; no se reanuda al arrancar");
+            return;
+        }
+
+        Log.i(TAG, "Reanudando detección tras el arranque (" + SystemClock.elapsedRealtime() + " ms desde el encendido)");
+        Intent serviceIntent = new Intent(context, AIlertService.class)
+                .putExtra(AIlertService.EXTRA_REQUESTED_AT, SystemClock.elapsedRealtime());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.startForegroundService(serviceIntent);
+        } else {
+            context.startService(serviceIntent);
         }
     }
 }
@@ -0,0 +1,143 @@
+package com.example.ailert;
+
+/**
+ * Primera etapa de la cascada: un detector DSP de pocas operaciones por muestra que decide
+ * si una ventana con actividad puede contener un sonido peligroso antes de despertar al
+ * clasificador completo.
+ *
+ * Busca dos patrones: impulsivos (disparos, vidrio, chasquidos de fuego), donde una
+ * sub-trama concentra mucha más energía que la media de la ventana, y tonales (sirenas,
+ * gritos), donde la autocorrelación normalizada tiene un pico claro en el rango de tonos
+ * de 250 Hz a 2 kHz. Tras un candidato se siguen pasando {@code hangoverWindows} ventanas
+ * para que el agregador pueda reunir sus k de n aciertos.
+ */
+public class CandidateDetector {
+
+    public static final float DEFAULT_IMPULSE_DB = 9f;
+    public static final float DEFAULT_TONALITY = 0.5f;
+
+    private static final int SUB_FRAMES = 64;
+    private static final int TONAL_SEGMENT = 1024;
+    private static final float MIN_PITCH_HZ = 250f;
+    private static final float MAX_PITCH_HZ = 2000f;
+
+    private final int minLag;
+    private final int maxLag;
+    private final int hangoverWindows;
+
+    private float impulseThresholdDb = DEFAULT_IMPULSE_DB;
+    private float tonalityThreshold = DEFAULT_TONALITY;
+    private int hangover;
+
+    private volatile float lastImpulseDb;
+    private volatile float lastTonality;
+    private volatile long windowsScreened;
+    private volatile long windowsPassed;
+
+    public CandidateDetector(int sampleRate) {
+        this(sampleRate, 2);
+    }
+
+    public CandidateDetector(int sampleRate, int hangoverWindows) {
+        this.minLag = Math.max(2, (int) (sampleRate / MAX_PITCH_HZ));
+        this.maxLag = Math.max(minLag + 1, (int) (sampleRate / MIN_PITCH_HZ));
+        this.hangoverWindows = hangoverWindows;
+    }
+
+    /** Umbrales propios de esta etapa; los de la segunda son los de {@link LabelDecision}. */
+    public void setThresholds(float impulseThresholdDb, float tonalityThreshold) {
+        this.impulseThresholdDb = impulseThresholdDb;
+        this.tonalityThreshold = tonalityThreshold;
+    }
+
+    /** Llamado desde el hilo de inferencia con cada ventana que pasó la compuerta de actividad. */
+    public boolean isCandidate(float[] samples, int offset, int length) {
+        windowsScreened++;
+        int frameLength = Math.max(length / SUB_FRAMES, 1);
+        double totalEnergy = 0;
+        double maxFrameEnergy = 0;
+        int loudestFrame = 0;
+        for (int frameStart = 0; frameStart < length; frameStart += frameLength) {
+            int frameEnd = Math.min(frameStart + frameLength, length);
+            double frameEnergy = 0;
+            for (int i = frameStart; i < frameEnd; i++) {
+                float sample = samples[offset + i];
+                frameEnergy += sample * sample;
+            }
+            totalEnergy += frameEnergy;
+            frameEnergy /= frameEnd - frameStart;
+            if (frameEnergy > maxFrameEnergy) {
+                maxFrameEnergy = frameEnergy;
+                loudestFrame = frameStart;
+            }
+        }
+        double meanEnergy = length > 0 ? totalEnergy / length : 0;
+        float impulseDb = meanEnergy > 1e-10 ? (float) (10.0 * Math.log10(maxFrameEnergy / meanEnergy)) : 0f;
+        lastImpulseDb = impulseDb;
+
+        boolean candidate = impulseDb >= impulseThresholdDb;
+        // La tonalidad sólo se calcula si el patrón impulsivo no bastó
+        float tonality = candidate ? 0f : tonality(samples, offset, length, loudestFrame);
+        lastTonality = tonality;
+        candidate |= tonality >= tonalityThreshold;
+
+        if (candidate) {
+            hangover = hangoverWindows;
+        } else if (hangover > 0) {
+            hangover--;
+            candidate = true;
+        }
+        if (candidate) {
+            windowsPassed++;
+        }
+        return candidate;
+    }
+
+    /** Máximo de la autocorrelación normalizada en el rango de tonos, sobre el tramo más fuerte. */
+    private float tonality(float[] samples, int offset, int length, int loudestFrame) {
+        int segment = Math.min(TONAL_SEGMENT, length);
+        int start = offset + Math.max(0, Math.min(loudestFrame, length - segment));
+        int lagLimit = Math.min(maxLag, segment / 2);
+        float best = 0f;
+        for (int lag = minLag; lag <= lagLimit; lag++) {
+            double cross = 0;
+            double energyA = 0;
+            double energyB = 0;
+            for (int i = start, end = start + segment - lag; i < end; i++) {
+                float a = samples[i];
+                float b = samples[i + lag];
+                cross += a * b;
+                energyA += a * a;
+                energyB += b * b;
+            }
+            if (energyA > 0 && energyB > 0) {
+                float r = (float) (cross / Math.sqrt(energyA * energyB));
+                if (r > best) {
+                    best = r;
+                }
+            }
+        }
+        return best;
+    }
+
+    public float getLastImpulseDb() {
+        return lastImpulseDb;
+    }
+
+    public float getLastTonality() {
+        return lastTonality;
+    }
+
+    public long getWindowsScreened() {
+        return windowsScreened;
+    }
+
+    public long getWindowsPassed() {
+        return windowsPassed;
+    }
+
+    /** Fracción de ventanas cribadas que llegaron al clasificador completo. */
+    public float getPassRatio() {
+        return windowsScreened == 0 ? 0f : (float) windowsPassed / windowsScreened;
+    }
+}
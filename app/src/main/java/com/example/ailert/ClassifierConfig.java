@@ -0,0 +1,134 @@
+package com.example.ailert;
+
+import android.content.SharedPreferences;
+
+import org.tensorflow.lite.Interpreter;
+
+/**
+ * Configuración inmutable de un clasificador. Dos configuraciones iguales comparten
+ * la misma instancia nativa en {@link ClassifierPool}.
+ */
+public final class ClassifierConfig {
+
+    public static final String DEFAULT_MODEL = "sound_classifier_wd_metadata.tflite";
+
+    /** Dónde se ejecuta el intérprete. En CPU puede usar los kernels optimizados de XNNPACK. */
+    public enum Accelerator { CPU, NNAPI }
+
+    private final String modelPath;
+    private final int numThreads;
+    private final Accelerator accelerator;
+    private final boolean xnnpack;
+
+    private ClassifierConfig(Builder builder) {
+        this.modelPath = builder.modelPath;
+        this.numThreads = builder.numThreads;
+        this.accelerator = builder.accelerator;
+        this.xnnpack = builder.xnnpack;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Variante y ejecución elegidas para este dispositivo (ver {@link ModelRegistry} y el benchmark de probarmodelo). */
+    public static ClassifierConfig fromPreferences(SharedPreferences preferences) {
+        Accelerator accelerator;
+        try {
+            accelerator = Accelerator.valueOf(preferences.getString("tflite_acelerador", Accelerator.CPU.name()));
+        } catch (IllegalArgumentException e) {
+            accelerator = Accelerator.CPU;
+        }
+        return builder()
+                .setModelPath(preferences.getString("modelo_archivo", DEFAULT_MODEL))
+                .setNumThreads(preferences.getInt("tflite_hilos", -1))
+                .setAccelerator(accelerator)
+                .setXnnpack(preferences.getBoolean("tflite_xnnpack", true))
+                .build();
+    }
+
+    public void saveExecution(SharedPreferences.Editor editor) {
+        editor.putInt("tflite_hilos", numThreads);
+        editor.putString("tflite_acelerador", accelerator.name());
+        editor.putBoolean("tflite_xnnpack", xnnpack);
+    }
+
+    public String getModelPath() {
+        return modelPath;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public Accelerator getAccelerator() {
+        return accelerator;
+    }
+
+    public boolean isXnnpack() {
+        return xnnpack;
+    }
+
+    Interpreter.Options toInterpreterOptions() {
+        Interpreter.Options options = new Interpreter.Options();
+        if (numThreads > 0) {
+            options.setNumThreads(numThreads);
+        }
+        if (accelerator == Accelerator.NNAPI) {
+            options.setUseNNAPI(true);
+        }
+        options.setUseXNNPACK(xnnpack);
+        return options;
+    }
+
+    /** Clave del pool: ruta del modelo más todas las opciones que afectan al intérprete. */
+    String key() {
+        return modelPath + "|" + numThreads + "|" + accelerator + "|" + xnnpack;
+    }
+
+    /** Descripción corta para registros y resultados de benchmark. */
+    public String describe() {
+        return accelerator + " x" + (numThreads > 0 ? numThreads : "auto") + (accelerator == Accelerator.CPU && !xnnpack ? " sin XNNPACK" : "");
+    }
+
+    public Builder toBuilder() {
+        return builder()
+                .setModelPath(modelPath)
+                .setNumThreads(numThreads)
+                .setAccelerator(accelerator)
+                .setXnnpack(xnnpack);
+    }
+
+    public static final class Builder {
+        private String modelPath = DEFAULT_MODEL;
+        private int numThreads = -1;
+        private Accelerator accelerator = Accelerator.CPU;
+        private boolean xnnpack = true;
+
+        public Builder setModelPath(String modelPath) {
+            this.modelPath = modelPath;
+            return this;
+        }
+
+        /** Hilos del intérprete; -1 deja el valor por defecto del runtime. */
+        public Builder setNumThreads(int numThreads) {
+            this.numThreads = numThreads;
+            return this;
+        }
+
+        public Builder setAccelerator(Accelerator accelerator) {
+            this.accelerator = accelerator;
+            return this;
+        }
+
+        /** Delegado XNNPACK en CPU; activado por defecto. */
+        public Builder setXnnpack(boolean xnnpack) {
+            this.xnnpack = xnnpack;
+            return this;
+        }
+
+        public ClassifierConfig build() {
+            return new ClassifierConfig(this);
+        }
+    }
+}
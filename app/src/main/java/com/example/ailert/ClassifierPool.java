@@ -0,0 +1,210 @@
+package com.example.ailert;
+
+import android.content.Context;
+import android.media.AudioRecord;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool de clasificadores TFLite compartido por todo el proceso, con conteo de referencias.
+ *
+ * El primer {@link #acquire} carga y calienta el modelo; los siguientes reutilizan el
+ * intérprete nativo. Cuando se libera el último {@link Lease} el clasificador se cierra
+ * tras un breve margen, para que apagar y encender el detector no vuelva a cargarlo.
+ */
+public final class ClassifierPool {
+
+    private static final String TAG = "AIlert";
+    private static final long RELEASE_DELAY_MS = 30_000;
+
+    private static final Map<String, Entry> entries = new HashMap<>();
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private ClassifierPool() {
+    }
+
+    public static Lease acquire(Context context, ClassifierConfig config) throws IOException {
+        Entry entry;
+        synchronized (ClassifierPool.class) {
+            entry = entries.get(config.key());
+            if (entry == null) {
+                entry = new Entry(config);
+                entries.put(config.key(), entry);
+            }
+            entry.refCount++;
+            handler.removeCallbacks(entry.closeTask);
+        }
+
+        try {
+            entry.ensureLoaded(context.getApplicationContext());
+        } catch (IOException | RuntimeException e) {
+            release(entry);
+            throw e;
+        }
+        return new Lease(entry);
+    }
+
+    /** Cierra ya los modelos sin usuarios, sin esperar el margen de liberación. */
+    public static void trimIdle() {
+        List<Entry> idle = new ArrayList<>();
+        synchronized (ClassifierPool.class) {
+            for (Entry entry : entries.values()) {
+                if (entry.refCount == 0) {
+                    handler.removeCallbacks(entry.closeTask);
+                    idle.add(entry);
+                }
+            }
+            for (Entry entry : idle) {
+                entries.remove(entry.config.key());
+            }
+        }
+        for (Entry entry : idle) {
+            entry.close();
+        }
+    }
+
+    private static void release(Entry entry) {
+        synchronized (ClassifierPool.class) {
+            if (--entry.refCount == 0) {
+                handler.postDelayed(entry.closeTask, RELEASE_DELAY_MS);
+            }
+        }
+    }
+
+    private static void closeIfUnused(Entry entry) {
+        synchronized (ClassifierPool.class) {
+            if (entry.refCount > 0) {
+                return;
+            }
+            entries.remove(entry.config.key());
+        }
+        entry.close();
+    }
+
+    private static final class Entry {
+        final ClassifierConfig config;
+        final Runnable closeTask = () -> closeIfUnused(this);
+        int refCount;
+        SoundModel model;
+
+        Entry(ClassifierConfig config) {
+            this.config = config;
+        }
+
+        synchronized void ensureLoaded(Context context) throws IOException {
+            if (model != null) {
+                return;
+            }
+            long start = SystemClock.elapsedRealtime();
+            model = SoundModel.load(context, config);
+
+            // Una inferencia sobre silencio para que el primer resultado real no pague la preparación
+            model.classify(new float[model.getWindowSize()], new float[model.getLabels().size()]);
+            Log.i(TAG, "Modelo " + config.getModelPath() + " cargado en " + (SystemClock.elapsedRealtime() - start) + " ms");
+        }
+
+        synchronized void classify(float[] window, float[] scores) {
+            model.classify(window, scores);
+        }
+
+        synchronized void classifyBatch(float[][] windows, int count, float[][] scores) {
+            model.classifyBatch(windows, count, scores);
+        }
+
+        synchronized AudioRecord createAudioRecord() {
+            return model.createAudioRecord();
+        }
+
+        synchronized void close() {
+            if (model != null) {
+                try {
+                    model.close();
+                } catch (Exception e) {
+                    Log.w(TAG, "Error al cerrar el clasificador", e);
+                }
+                model = null;
+            }
+            Log.i(TAG, "Modelo " + config.getModelPath() + " liberado");
+        }
+    }
+
+    /** Préstamo de un clasificador compartido. Debe cerrarse al dejar de usarse. */
+    public static final class Lease implements Closeable, SoundClassifier {
+        private final Entry entry;
+        private final List<String> labels;
+        private final int sampleRate;
+        private final int windowSize;
+        private final int featureFrames;
+        private final int melBins;
+        private boolean closed;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+            // Fijos mientras el préstamo mantenga el modelo cargado
+            this.labels = entry.model.getLabels();
+            this.sampleRate = entry.model.getSampleRate();
+            this.windowSize = entry.model.getWindowSize();
+            this.featureFrames = entry.model.getFeatureFrames();
+            this.melBins = entry.model.getMelBins();
+        }
+
+        @Override
+        public List<String> getLabels() {
+            return labels;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        /** Muestras por ventana que espera el modelo. */
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        /** Tramas log-mel que espera el modelo, o 0 si clasifica la forma de onda. */
+        @Override
+        public int getFeatureFrames() {
+            return featureFrames;
+        }
+
+        @Override
+        public int getMelBins() {
+            return melBins;
+        }
+
+        public AudioRecord createAudioRecord() {
+            return entry.createAudioRecord();
+        }
+
+        /** Las llamadas al intérprete se serializan entre todos los usuarios del mismo modelo. */
+        @Override
+        public void classify(float[] window, float[] scores) {
+            entry.classify(window, scores);
+        }
+
+        /** Varias ventanas en una sola invocación del intérprete, si el modelo lo admite. */
+        @Override
+        public void classifyBatch(float[][] windows, int count, float[][] scores) {
+            entry.classifyBatch(windows, count, scores);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            release(entry);
+        }
+    }
+}
@@ -25,6 +25,9 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
+import java.util.Collections;
+import java.util.List;
+
 public class ConfigFragment extends Fragment {
 
     private static final int PERMISSION_REQUEST_CONTACTS = 200;
@@ -33,7 +36,7 @@ public class ConfigFragment extends Fragment {
     private CheckBox cbBalas, cbGritos, cbVidrio, cbFuego, cbSirenas;
     private EditText etMensaje;
     private TextView tvContacto;
-    private Button btnSelectContact, btnSave;
+    private Button btnSelectContact, btnClearContacts, btnSave;
     private SharedPreferences preferences;
 
     @Override
@@ -49,13 +52,21 @@ public class ConfigFragment extends Fragment {
         etMensaje = view.findViewById(R.id.message_input);
         tvContacto = view.findViewById(R.id.contact_text);
         btnSelectContact = view.findViewById(R.id.select_contact_button);
+        btnClearContacts = view.findViewById(R.id.clear_contacts_button);
         btnSave = view.findViewById(R.id.save_button);
 
         preferences = requireActivity().getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE);
 
         loadPreferences();
 
-        btnSelectContact.setOnClickListener(v -> requestContactPermission());
+        btnSelectContact.setOnClickListener(v -> {
+            if (loadContacts().size() >= EmergencyContact.MAX_CONTACTS) {
+                Toast.makeText(getContext(), "Máximo " + EmergencyContact.MAX_CONTACTS + " contactos", Toast.LENGTH_SHORT).show();
+            } else {
+                requestContactPermission();
+            }
+        });
+        btnClearContacts.setOnClickListener(v -> saveContacts(Collections.<EmergencyContact>emptyList()));
         btnSave.setOnClickListener(v -> savePreferences());
 
         return view;
@@ -69,7 +80,40 @@ public class ConfigFragment extends Fragment {
         cbSirenas.setChecked(preferences.getBoolean("sound_sirenas", false));
 
         etMensaje.setText(preferences.getString("mensaje_base", "¡Ayuda! Esta es una emergencia."));
-        tvContacto.setText(preferences.getString("contacto_nombre", "No seleccionado"));
+        showContacts(loadContacts());
+    }
+
+    private List<EmergencyContact> loadContacts() {
+        return EmergencyData.fromValues(preferences.getAll()).contacts;
+    }
+
+    /** Guarda la lista ordenada; el primero se copia también a las claves de un solo contacto. */
+    private void saveContacts(List<EmergencyContact> contacts) {
+        SharedPreferences.Editor editor = preferences.edit();
+        editor.putString("contactos", EmergencyContact.encode(contacts));
+        if (contacts.isEmpty()) {
+            editor.remove("contacto_nombre").remove("contacto_numero");
+        } else {
+            editor.putString("contacto_nombre", contacts.get(0).name);
+            editor.putString("contacto_numero", contacts.get(0).number);
+        }
+        editor.apply();
+        showContacts(contacts);
+    }
+
+    private void showContacts(List<EmergencyContact> contacts) {
+        if (contacts.isEmpty()) {
+            tvContacto.setText("No seleccionado");
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < contacts.size(); i++) {
+            if (i > 0) {
+                text.append('\n');
+            }
+            text.append(i + 1).append(". ").append(contacts.get(i));
+        }
+        tvContacto.setText(text);
     }
 
     private void savePreferences() {
@@ -142,7 +186,6 @@ public class ConfigFragment extends Fragment {
                 if (cursor != null && cursor.moveToFirst()) {
                     contactId = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.Contacts._ID));
                     contactName = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.Contacts.DISPLAY_NAME));
-                    tvContacto.setText(contactName);
                 }
             }
 
@@ -156,12 +199,15 @@ public class ConfigFragment extends Fragment {
                         String phoneNumber = phoneCursor.getString(
                                 phoneCursor.getColumnIndexOrThrow(ContactsContract.CommonDataKinds.Phone.NUMBER));
 
-                        SharedPreferences.Editor editor = preferences.edit();
-                        editor.putString("contacto_nombre", contactName);
-                        editor.putString("contacto_numero", phoneNumber);
-                        editor.apply();
-
-                        Toast.makeText(getContext(), "Contacto guardado: " + contactName, Toast.LENGTH_SHORT).show();
+                        // Se agrega al final: el orden de la lista es el orden de prioridad
+                        List<EmergencyContact> contacts = loadContacts();
+                        List<EmergencyContact> updated = EmergencyContact.append(contacts, new EmergencyContact(contactName, phoneNumber));
+                        if (updated.size() == contacts.size()) {
+                            Toast.makeText(getContext(), "El contacto ya está en la lista", Toast.LENGTH_SHORT).show();
+                        } else {
+                            saveContacts(updated);
+                            Toast.makeText(getContext(), "Contacto agregado: " + contactName, Toast.LENGTH_SHORT).show();
+                        }
                     } else {
                         Toast.makeText(getContext(), "El contacto no tiene número registrado", Toast.LENGTH_LONG).show();
                     }
@@ -0,0 +1,29 @@
+package com.example.ailert;
+
+/**
+ * Etiquetas del modelo que cuentan como sonido peligroso. Sin dependencias de Android
+ * para poder medirse en el módulo de benchmark.
+ */
+public final class DangerLabels {
+
+    public static final String[] LABELS = {"gun_shot", "screams", "glass_breaking", "crackling_fire", "siren"};
+
+    /** Casilla de ConfigFragment que activa cada etiqueta, en el mismo orden que {@link #LABELS}. */
+    public static final String[] PREFERENCE_KEYS = {"sound_balas", "sound_gritos", "sound_vidrio", "sound_fuego", "sound_sirenas"};
+
+    private DangerLabels() {
+    }
+
+    public static boolean isDangerous(String soundLabel) {
+        switch(soundLabel) {
+            case "gun_shot":
+            case "screams":
+            case "glass_breaking":
+            case "crackling_fire":
+            case "siren":
+                return true; // Siempre retorna true para sonidos peligrosos
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.ailert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Convierte la secuencia de clasificaciones por ventana en incidentes: un único evento
+ * por sonido peligroso mientras dure, en lugar de una alerta por ventana.
+ *
+ * Para cada etiqueta mantiene, con coste O(1) por ventana, los aciertos en las últimas
+ * {@code n} ventanas (k de n), un promedio exponencial del puntaje y el pico del incidente.
+ * El incidente se abre cuando hay {@code k} aciertos en {@code n} y el promedio supera
+ * {@code enterScore}; se cierra cuando el promedio cae por debajo de {@code exitScore}
+ * (histéresis). Tras emitir, la etiqueta no vuelve a emitir durante su enfriamiento.
+ * El puntaje emitido es el máximo de las {@code n} ventanas que abrieron el incidente.
+ *
+ * El listener se llama fuera del monitor del agregador: lo que haga (anotar, encolar la
+ * alerta) no bloquea a quien lee la configuración o el estado, y puede volver a llamar al
+ * agregador sin riesgo de interbloqueo.
+ */
+public class DetectionAggregator {
+
+    public interface Listener {
+        /** {@code peakScore}: máximo de las últimas {@code n} ventanas al abrir el incidente. */
+        void onIncident(String label, float peakScore, long timestampMs);
+    }
+
+    private final int windowCount;
+    private final int requiredHits;
+    private final float hitScore;
+    private final float enterScore;
+    private final float exitScore;
+    private final float emaAlpha;
+    private final long defaultCooldownMs;
+    private final Map<String, Long> cooldowns = new HashMap<>();
+    private final Map<String, LabelState> states = new HashMap<>();
+    // Mismo contenido que states, recorrido por índice para no crear iteradores en cada ventana
+    private final List<LabelState> stateList = new ArrayList<>();
+    private final Listener listener;
+
+    public DetectionAggregator(Listener listener) {
+        this(listener, 5, 2, 0.6f, 0.5f, 0.25f, 0.4f, 60_000L);
+    }
+
+    public DetectionAggregator(Listener listener, int windowCount, int requiredHits, float hitScore,
+                               float enterScore, float exitScore, float emaAlpha, long defaultCooldownMs) {
+        if (windowCount < 1 || windowCount > 64 || requiredHits < 1 || requiredHits > windowCount) {
+            throw new IllegalArgumentException("Parámetros k de n inválidos");
+        }
+        this.listener = listener;
+        this.windowCount = windowCount;
+        this.requiredHits = requiredHits;
+        this.hitScore = hitScore;
+        this.enterScore = enterScore;
+        this.exitScore = exitScore;
+        this.emaAlpha = emaAlpha;
+        this.defaultCooldownMs = defaultCooldownMs;
+    }
+
+    /** Enfriamiento propio de una etiqueta; si no se configura se usa el predeterminado. */
+    public synchronized void setCooldown(String label, long cooldownMs) {
+        cooldowns.put(label, cooldownMs);
+    }
+
+    /** Aplica los enfriamientos por etiqueta de la configuración; sólo cuando ésta cambia. */
+    public synchronized void applyCooldowns(DetectionConfig config) {
+        for (int i = 0; i < DangerLabels.LABELS.length; i++) {
+            cooldowns.put(DangerLabels.LABELS[i], config.getCooldownMs(i));
+        }
+    }
+
+    /**
+     * Registra el puntaje de una etiqueta peligrosa para la ventana actual.
+     * Las etiquetas que no aparecen en una ventana deben registrarse con 0 mediante {@link #decayOthers}.
+     */
+    public void onScore(String label, float score, long timestampMs) {
+        float peak;
+        synchronized (this) {
+            LabelState state = states.get(label);
+            if (state == null) {
+                state = new LabelState(label, windowCount);
+                states.put(label, state);
+                stateList.add(state);
+            }
+            if (!update(state, score, timestampMs)) {
+                return;
+            }
+            peak = state.peak;
+        }
+        if (listener != null) {
+            listener.onIncident(label, peak, timestampMs);
+        }
+    }
+
+    /** Registra una ventana sin acierto para todas las etiquetas salvo {@code except}. */
+    public void decayOthers(String except, long timestampMs) {
+        // Una ventana sin acierto no suele abrir incidentes; la lista sólo se crea si ocurre
+        List<String> emittedLabels = null;
+        List<Float> emittedPeaks = null;
+        synchronized (this) {
+            for (int i = 0; i < stateList.size(); i++) {
+                LabelState state = stateList.get(i);
+                if (!state.label.equals(except) && update(state, 0f, timestampMs)) {
+                    if (emittedLabels == null) {
+                        emittedLabels = new ArrayList<>();
+                        emittedPeaks = new ArrayList<>();
+                    }
+                    emittedLabels.add(state.label);
+                    emittedPeaks.add(state.peak);
+                }
+            }
+        }
+        if (emittedLabels != null && listener != null) {
+            for (int i = 0; i < emittedLabels.size(); i++) {
+                listener.onIncident(emittedLabels.get(i), emittedPeaks.get(i), timestampMs);
+            }
+        }
+    }
+
+    /** Actualiza el estado con el monitor tomado; true si hay que emitir un incidente. */
+    private boolean update(LabelState state, float score, long timestampMs) {
+        long mask = windowCount == 64 ? -1L : (1L << windowCount) - 1;
+        boolean hit = score >= hitScore;
+        long evicted = (state.history >>> (windowCount - 1)) & 1L;
+        state.history = ((state.history << 1) | (hit ? 1L : 0L)) & mask;
+        state.hits += (hit ? 1 : 0) - (int) evicted;
+        state.recent[state.cursor] = score;
+        state.cursor = state.cursor + 1 == windowCount ? 0 : state.cursor + 1;
+        state.ema = state.initialized ? state.ema + emaAlpha * (score - state.ema) : score;
+        state.initialized = true;
+        state.lastUpdateMs = timestampMs;
+
+        if (state.active) {
+            state.peak = Math.max(state.peak, score);
+            if (state.ema < exitScore && state.hits == 0) {
+                state.active = false;
+            }
+            return false;
+        }
+
+        if (state.hits >= requiredHits && state.ema >= enterScore) {
+            state.active = true;
+            state.peak = recentPeak(state);
+            if (state.lastEmitMs == 0 || timestampMs - state.lastEmitMs >= cooldownFor(state.label)) {
+                state.lastEmitMs = timestampMs;
+                state.emitted++;
+                return true;
+            }
+            state.suppressed++;
+        }
+        return false;
+    }
+
+    private static float recentPeak(LabelState state) {
+        float peak = 0f;
+        for (float score : state.recent) {
+            peak = Math.max(peak, score);
+        }
+        return peak;
+    }
+
+    private long cooldownFor(String label) {
+        Long cooldown = cooldowns.get(label);
+        return cooldown != null ? cooldown : defaultCooldownMs;
+    }
+
+    /** Copia del estado por etiqueta, para inspección y depuración. */
+    public synchronized Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> result = new HashMap<>();
+        for (LabelState state : states.values()) {
+            result.put(state.label, new Snapshot(state));
+        }
+        return result;
+    }
+
+    /** Último instante de emisión por etiqueta. */
+    public synchronized Map<String, Long> lastEmissions() {
+        Map<String, Long> result = new HashMap<>();
+        for (LabelState state : states.values()) {
+            if (state.lastEmitMs != 0) {
+                result.put(state.label, state.lastEmitMs);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Restaura los últimos instantes de emisión (p. ej. tras reiniciar el servicio) para que
+     * el enfriamiento siga contando desde la alerta anterior.
+     */
+    public synchronized void restoreEmissions(Map<String, Long> lastEmissions) {
+        for (Map.Entry<String, Long> entry : lastEmissions.entrySet()) {
+            LabelState state = states.get(entry.getKey());
+            if (state == null) {
+                state = new LabelState(entry.getKey(), windowCount);
+                states.put(entry.getKey(), state);
+                stateList.add(state);
+            }
+            state.lastEmitMs = Math.max(state.lastEmitMs, entry.getValue());
+        }
+    }
+
+    private static final class LabelState {
+        final String label;
+        // Puntajes de las últimas n ventanas, para el pico al abrir el incidente
+        final float[] recent;
+        int cursor;
+        long history;
+        int hits;
+        float ema;
+        float peak;
+        boolean initialized;
+        boolean active;
+        long lastUpdateMs;
+        long lastEmitMs;
+        long emitted;
+        long suppressed;
+
+        LabelState(String label, int windowCount) {
+            this.label = label;
+            this.recent = new float[windowCount];
+        }
+    }
+
+    public static final class Snapshot {
+        public final int hits;
+        public final float ema;
+        public final float peak;
+        public final boolean active;
+        public final long lastEmitMs;
+        public final long emitted;
+        public final long suppressed;
+
+        Snapshot(LabelState state) {
+            this.hits = state.hits;
+            this.ema = state.ema;
+            this.peak = state.peak;
+            this.active = state.active;
+            this.lastEmitMs = state.lastEmitMs;
+            this.emitted = state.emitted;
+            this.suppressed = state.suppressed;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + " ema=" + ema + " pico=" + peak + " activo=" + active
+                    + " emitidos=" + emitted + " suprimidos=" + suppressed;
+        }
+    }
+}
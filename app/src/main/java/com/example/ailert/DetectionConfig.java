@@ -0,0 +1,139 @@
+package com.example.ailert;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Copia inmutable y tipada de la configuración que usa la detección: qué etiquetas
+ * peligrosas están activas (máscara de bits en el orden de {@link DangerLabels#LABELS}),
+ * el umbral y el enfriamiento de cada una, los umbrales de la primera etapa de la cascada
+ * y los contactos de emergencia ya normalizados.
+ *
+ * Se reconstruye sólo cuando cambian las preferencias y se sustituye entera, así que la
+ * ruta caliente nunca lee disco ni aplica expresiones regulares.
+ */
+public final class DetectionConfig {
+
+    public static final float DEFAULT_THRESHOLD = 0.3f;
+    public static final long DEFAULT_LOCATION_MAX_AGE_MS = 2 * 60_000;
+    public static final long DEFAULT_COOLDOWN_MS = 60_000;
+
+    private static final int ALL_LABELS = (1 << DangerLabels.LABELS.length) - 1;
+
+    private final int enabledMask;
+    private final float[] thresholds;
+    private final long[] cooldowns;
+    private final EmergencyData emergencyData;
+    private final long locationMaxAgeMs;
+    private final boolean cascadeEnabled;
+    private final float impulseThresholdDb;
+    private final float tonalityThreshold;
+
+    private DetectionConfig(int enabledMask, float[] thresholds, long[] cooldowns, EmergencyData emergencyData,
+                            long locationMaxAgeMs, boolean cascadeEnabled, float impulseThresholdDb, float tonalityThreshold) {
+        this.enabledMask = enabledMask;
+        this.thresholds = thresholds;
+        this.cooldowns = cooldowns;
+        this.emergencyData = emergencyData;
+        this.locationMaxAgeMs = locationMaxAgeMs;
+        this.cascadeEnabled = cascadeEnabled;
+        this.impulseThresholdDb = impulseThresholdDb;
+        this.tonalityThreshold = tonalityThreshold;
+    }
+
+    /** Todas las etiquetas activas con el umbral por defecto y sin contacto. */
+    public static DetectionConfig defaults() {
+        float[] thresholds = new float[DangerLabels.LABELS.length];
+        Arrays.fill(thresholds, DEFAULT_THRESHOLD);
+        long[] cooldowns = new long[DangerLabels.LABELS.length];
+        Arrays.fill(cooldowns, DEFAULT_COOLDOWN_MS);
+        return new DetectionConfig(ALL_LABELS, thresholds, cooldowns, EmergencyData.of("", null), DEFAULT_LOCATION_MAX_AGE_MS,
+                true, CandidateDetector.DEFAULT_IMPULSE_DB, CandidateDetector.DEFAULT_TONALITY);
+    }
+
+    /**
+     * Construye la configuración a partir de {@code SharedPreferences.getAll()}. Si el usuario
+     * nunca guardó la selección de sonidos se vigilan todos, como antes de existir la pantalla.
+     */
+    public static DetectionConfig fromValues(Map<String, ?> values) {
+        int mask = 0;
+        boolean anyConfigured = false;
+        float[] thresholds = new float[DangerLabels.LABELS.length];
+        long[] cooldowns = new long[DangerLabels.LABELS.length];
+        for (int i = 0; i < DangerLabels.LABELS.length; i++) {
+            Object enabled = values.get(DangerLabels.PREFERENCE_KEYS[i]);
+            if (enabled instanceof Boolean) {
+                anyConfigured = true;
+                if ((Boolean) enabled) {
+                    mask |= 1 << i;
+                }
+            }
+            Object threshold = values.get(thresholdKey(DangerLabels.LABELS[i]));
+            thresholds[i] = threshold instanceof Float ? (Float) threshold : DEFAULT_THRESHOLD;
+            Object cooldown = values.get(cooldownKey(DangerLabels.LABELS[i]));
+            cooldowns[i] = cooldown instanceof Long ? Math.max(0, (Long) cooldown) : DEFAULT_COOLDOWN_MS;
+        }
+        if (!anyConfigured) {
+            mask = ALL_LABELS;
+        }
+
+        Object maxAge = values.get("ubicacion_max_edad_ms");
+        Object cascade = values.get("cascada_activa");
+        Object impulseDb = values.get("cascada_impulso_db");
+        Object tonality = values.get("cascada_tonalidad");
+        return new DetectionConfig(mask, thresholds, cooldowns, EmergencyData.fromValues(values),
+                maxAge instanceof Long ? (Long) maxAge : DEFAULT_LOCATION_MAX_AGE_MS,
+                !(cascade instanceof Boolean) || (Boolean) cascade,
+                impulseDb instanceof Float ? (Float) impulseDb : CandidateDetector.DEFAULT_IMPULSE_DB,
+                tonality instanceof Float ? (Float) tonality : CandidateDetector.DEFAULT_TONALITY);
+    }
+
+    /** Clave de preferencias del umbral propio de una etiqueta, p. ej. "umbral_siren". */
+    public static String thresholdKey(String label) {
+        return "umbral_" + label;
+    }
+
+    /** Clave de preferencias del enfriamiento de una etiqueta en ms, p. ej. "enfriamiento_siren". */
+    public static String cooldownKey(String label) {
+        return "enfriamiento_" + label;
+    }
+
+    /** Bit {@code i} activo si la etiqueta {@code DangerLabels.LABELS[i]} se vigila. */
+    public int getEnabledMask() {
+        return enabledMask;
+    }
+
+    public boolean isEnabled(int labelIndex) {
+        return (enabledMask & (1 << labelIndex)) != 0;
+    }
+
+    public float getThreshold(int labelIndex) {
+        return thresholds[labelIndex];
+    }
+
+    /** Tiempo tras una alerta en que la misma etiqueta no vuelve a alertar. */
+    public long getCooldownMs(int labelIndex) {
+        return cooldowns[labelIndex];
+    }
+
+    public EmergencyData getEmergencyData() {
+        return emergencyData;
+    }
+
+    public long getLocationMaxAgeMs() {
+        return locationMaxAgeMs;
+    }
+
+    /** Si la primera etapa DSP filtra las ventanas antes del clasificador completo. */
+    public boolean isCascadeEnabled() {
+        return cascadeEnabled;
+    }
+
+    public float getImpulseThresholdDb() {
+        return impulseThresholdDb;
+    }
+
+    public float getTonalityThreshold() {
+        return tonalityThreshold;
+    }
+}
@@ -0,0 +1,499 @@
+package com.example.ailert;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Motor de detección sin interfaz: captura, clasificación y envío de alertas.
+ * Vive dentro de {@link AIlertService}; el modelo y el micrófono se preparan una sola
+ * vez por vida del servicio y las pantallas sólo consultan su estado.
+ */
+public class DetectionEngine {
+
+    private static final String TAG = "AIlert";
+    private static final long MOVEMENT_WINDOW_MS = 5 * 60_000;
+    // Con una clasificación por segundo sobre el umbral son ~4 MB al día antes de compactar
+    private static final long JOURNAL_MAX_BYTES = 8L * 1024 * 1024;
+    // Una misma etiqueta se anota como mucho una vez por este intervalo
+    private static final long JOURNAL_REPEAT_MS = 1000;
+    private static final long JOURNAL_MAX_AGE_MS = 30L * 24 * 60 * 60_000;
+    // WAV PCM de 16 bits a 16 kHz: ~320 KB por clip de 10 s, unos 60 clips
+    private static final long EVIDENCE_MAX_BYTES = 20L * 1024 * 1024;
+
+    private final Context context;
+    private final SharedPreferences preferences;
+    private final FusedLocationProviderClient fusedLocationClient;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AlertOutbox outbox;
+    private final File checkpointFile;
+    // Historial para revisar incidentes; null si no se pudo abrir
+    private final DetectionJournal journal;
+    private final ExecutorService journalMaintenance;
+    private final float journalFloor;
+    private String lastJournaledLabel;
+    private long lastJournaledMs;
+    // Clips de audio de los incidentes; null si están desactivados
+    private EvidenceRecorder evidence;
+    private final ExecutorService evidenceIo;
+
+    // Se reemplaza entera cuando cambian las preferencias; nunca se lee disco al detectar
+    private volatile DetectionConfig config;
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferenceListener = (prefs, key) -> reloadConfig();
+
+    // Variables para el modelo de audio
+    private ClassifierPool.Lease classifier;
+    private AudioSource source;
+    private AudioRingBuffer ringBuffer;
+    private AudioCaptureThread captureThread;
+    private float[][] windows;
+    private final long[] windowTimestamps = new long[DetectionPipeline.MAX_BATCH];
+    private long hopMs;
+    private DetectionPipeline pipeline;
+    private final DetectionAggregator aggregator;
+    private ExecutorService executorService;
+    private final AtomicBoolean isListening = new AtomicBoolean(false);
+    private final AtomicBoolean isModelLoaded = new AtomicBoolean(false);
+
+    // Las pantallas lo muestrean mientras son visibles; la detección nunca las espera
+    private final DetectionStatus status = new DetectionStatus();
+
+    public DetectionEngine(Context context) {
+        this.context = context.getApplicationContext();
+        this.preferences = this.context.getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE);
+        this.fusedLocationClient = LocationServices.getFusedLocationProviderClient(this.context);
+        this.outbox = new AlertOutbox(this.context);
+        this.checkpointFile = new File(this.context.getFilesDir(), "motor.ckpt");
+        this.journalMaintenance = Executors.newSingleThreadExecutor(r -> new Thread(r, "AIlert-diario"));
+        this.journal = openJournal(new File(this.context.getFilesDir(), "diario"), journalMaintenance);
+        this.journalFloor = preferences.getFloat("diario_umbral", DetectionJournal.DEFAULT_SCORE_FLOOR);
+        this.evidenceIo = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "AIlert-evidencia");
+            // Escribir los clips nunca debe competir con la captura ni con la inferencia
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.outbox.setStatusListener((id, phoneNumber, status) -> {
+            Log.i(TAG, "Alerta " + id + " a " + phoneNumber + ": " + status);
+            if (journal != null) {
+                journal.recordSms(id, phoneNumber, status.ordinal(), System.currentTimeMillis());
+            }
+        });
+        this.config = DetectionConfig.fromValues(preferences.getAll());
+        // SharedPreferences guarda el listener con referencia débil: debe vivir en un campo
+        preferences.registerOnSharedPreferenceChangeListener(preferenceListener);
+        // Un solo evento por incidente: evita un SMS por ventana mientras dure el sonido
+        this.aggregator = new DetectionAggregator((label, peakScore, timestampMs) -> {
+            Log.d(TAG, "Incidente detectado: " + label + " (" + (int) (peakScore * 100) + "%)");
+            PipelineMetrics.getInstance().countIncident();
+            long detectedAtNanos = System.nanoTime();
+            if (journal != null) {
+                journal.recordIncident(label, peakScore, timestampMs);
+            }
+            EvidenceRecorder recorder = evidence;
+            if (recorder != null) {
+                recorder.trigger(label, timestampMs);
+            }
+            sendEmergencyAlert(label, detectedAtNanos);
+            // El enfriamiento se guarda después de encolar la alerta y fuera del hilo de detección
+            saveCheckpointInBackground();
+        });
+        restoreCheckpoint();
+    }
+
+    private static DetectionJournal openJournal(File directory, ExecutorService maintenance) {
+        try {
+            return new DetectionJournal(directory, JOURNAL_MAX_BYTES, JOURNAL_MAX_AGE_MS, maintenance);
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo abrir el diario de detecciones", e);
+            return null;
+        }
+    }
+
+    private void restoreCheckpoint() {
+        EngineCheckpoint checkpoint = EngineCheckpoint.readFrom(checkpointFile);
+        if (checkpoint == null) {
+            return;
+        }
+        aggregator.restoreEmissions(checkpoint.lastEmissions);
+        Log.i(TAG, "Estado restaurado: emisiones=" + checkpoint.lastEmissions.keySet()
+                + ", alertas pendientes=" + checkpoint.pendingAlerts);
+    }
+
+    private void saveCheckpointInBackground() {
+        try {
+            journalMaintenance.execute(() -> {
+                saveCheckpoint();
+                // El incidente ya anotado llega a disco sin esperar a que se llene el segmento
+                if (journal != null) {
+                    journal.sync();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Motor liberado: release() ya guardó el último estado
+        }
+    }
+
+    /** Guarda enfriamientos y alertas pendientes; es un archivo de unos cientos de bytes. */
+    public synchronized void saveCheckpoint() {
+        EngineCheckpoint checkpoint = new EngineCheckpoint(
+                System.currentTimeMillis(),
+                aggregator.lastEmissions(),
+                outbox.getPendingCount());
+        try {
+            checkpoint.writeTo(checkpointFile);
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo guardar el estado del motor", e);
+        }
+    }
+
+    /** Carga el modelo y crea el grabador. Se llama una vez por vida del servicio. */
+    public boolean prepare() {
+        // La bandeja de salida arranca aunque falte el modelo: puede haber alertas pendientes
+        outbox.start();
+        if (isModelLoaded.get()) {
+            return true;
+        }
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+            Log.e(TAG, "Sin permiso de micrófono, no se puede preparar la detección");
+            return false;
+        }
+
+        try {
+            // Elige (una sola vez por dispositivo) la variante del modelo más adecuada
+            ModelRegistry.Variant variant = ModelRegistry.ensureSelected(context, preferences);
+            Log.i(TAG, "Variante del modelo: " + variant);
+            classifier = ClassifierPool.acquire(context, ClassifierConfig.fromPreferences(preferences));
+            source = new MicrophoneSource(classifier.createAudioRecord());
+            int windowSize = classifier.getWindowSize();
+            // Salto entre ventanas; por defecto media ventana (50 % de solape)
+            int sampleRate = classifier.getSampleRate();
+            long windowMs = windowSize * 1000L / sampleRate;
+            hopMs = Math.max(1, Math.min(preferences.getLong("salto_ms", windowMs / 2), windowMs));
+            int hopSize = (int) Math.min(windowSize, hopMs * sampleRate / 1000);
+            // Cabe un lote completo de ventanas pendientes aunque no se solapen
+            ringBuffer = new AudioRingBuffer(windowSize, hopSize, DetectionPipeline.MAX_BATCH + 1);
+            windows = new float[DetectionPipeline.MAX_BATCH][windowSize];
+            // Margen ajustable por entorno; ver estadísticas en getActivityGate()
+            SoundActivityGate activityGate = new SoundActivityGate(preferences.getFloat("vad_margen_db", 10f), 12f, 3);
+            CandidateDetector candidateDetector = new CandidateDetector(classifier.getSampleRate());
+            pipeline = new DetectionPipeline(activityGate, candidateDetector, classifier, aggregator, new DetectionPipeline.Listener() {
+                @Override
+                public void onClassification(String label, float score) {
+                    long now = System.currentTimeMillis();
+                    status.publish(label, score, now);
+                    // Cada cambio de etiqueta y, mientras se mantiene, su puntaje una vez por segundo
+                    if (journal != null && score >= journalFloor
+                            && (!label.equals(lastJournaledLabel) || now - lastJournaledMs >= JOURNAL_REPEAT_MS)) {
+                        journal.recordClassification(label, score, now);
+                        lastJournaledLabel = label;
+                        lastJournaledMs = now;
+                    }
+                }
+
+                @Override
+                public void onSuspicion(String label, float score) {
+                    if (journal != null) {
+                        journal.recordSuspicion(label, score, System.currentTimeMillis());
+                    }
+                    // Sube la precisión de ubicación antes de que el incidente se confirme
+                    LocationService.reportSuspicion(score);
+                }
+            }, this.config);
+            if (preferences.getBoolean("evidencia_activa", true)) {
+                evidence = new EvidenceRecorder(sampleRate,
+                        preferences.getInt("evidencia_previo_ms", 5000),
+                        preferences.getInt("evidencia_posterior_ms", 5000),
+                        new File(context.getFilesDir(), "evidencia"), EVIDENCE_MAX_BYTES, evidenceIo,
+                        (file, label) -> Log.i(TAG, "Evidencia de " + label + " guardada en " + file.getName()));
+            }
+            if (classifier.getFeatureFrames() > 0) {
+                // Modelo de características: las tramas log-mel se calculan una vez por salto
+                int frames = classifier.getFeatureFrames();
+                pipeline.setFeatureStream(new LogMelStream(sampleRate, classifier.getMelBins(), frames), hopSize, frames);
+                Log.i(TAG, "Modelo de características log-mel: " + frames + " tramas de " + classifier.getMelBins() + " bandas");
+            }
+
+            isModelLoaded.set(true);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error cargando modelo", e);
+            showToast("Error cargando modelo de audio");
+            return false;
+        }
+    }
+
+    public void start() {
+        if (!prepare() || isListening.get()) {
+            return;
+        }
+
+        try {
+            source.start();
+            isListening.set(true);
+
+            captureThread = new AudioCaptureThread(source, ringBuffer, evidence);
+            captureThread.start();
+
+            // El consumidor sólo procesa la ventana más reciente; nunca se encolan tareas
+            executorService = Executors.newSingleThreadExecutor();
+            executorService.execute(this::classificationLoop);
+            Log.i(TAG, "Detección iniciada");
+        } catch (Exception e) {
+            Log.e(TAG, "Error iniciando clasificación", e);
+            isListening.set(false);
+            showToast("Error iniciando detector de sonidos");
+        }
+    }
+
+    public void stop() {
+        if (!isListening.getAndSet(false)) {
+            return;
+        }
+
+        ExecutorService consumer = executorService;
+        executorService = null;
+        if (consumer != null) {
+            consumer.shutdownNow();
+        }
+
+        if (captureThread != null) {
+            captureThread.shutdown();
+        }
+
+        try {
+            // stop() desbloquea la lectura pendiente del hilo de captura
+            source.stop();
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Error al detener grabación", e);
+        }
+
+        if (captureThread != null) {
+            try {
+                captureThread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            captureThread = null;
+        }
+
+        if (consumer != null) {
+            // El intérprete prestado y el anillo admiten un solo consumidor: un start() inmediato
+            // no puede coincidir con la inferencia que aún esté en curso
+            try {
+                if (!consumer.awaitTermination(1, TimeUnit.SECONDS)) {
+                    Log.w(TAG, "El hilo de clasificación no terminó a tiempo");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Log.i(TAG, "Detección detenida");
+    }
+
+    private void reloadConfig() {
+        DetectionConfig updated = DetectionConfig.fromValues(preferences.getAll());
+        config = updated;
+        DetectionPipeline current = pipeline;
+        if (current != null) {
+            current.setConfig(updated);
+        }
+        Log.d(TAG, "Configuración de detección actualizada, etiquetas activas: " + Integer.toBinaryString(updated.getEnabledMask()));
+    }
+
+    public DetectionConfig getConfig() {
+        return config;
+    }
+
+    /** Libera micrófono y modelo. Se llama al destruir el servicio. */
+    public void release() {
+        stop();
+        saveCheckpoint();
+        preferences.unregisterOnSharedPreferenceChangeListener(preferenceListener);
+        outbox.shutdown();
+        if (journal != null) {
+            journal.close();
+        }
+        journalMaintenance.shutdown();
+        // Los clips ya entregados terminan de escribirse; no se aceptan nuevos
+        evidenceIo.shutdown();
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error al cerrar la fuente de audio", e);
+            }
+            source = null;
+        }
+        if (classifier != null) {
+            classifier.close();
+            classifier = null;
+        }
+        isModelLoaded.set(false);
+    }
+
+    public boolean isListening() {
+        return isListening.get();
+    }
+
+    public String getLastLabel() {
+        return status.getLabel();
+    }
+
+    public float getLastScore() {
+        return status.getScore();
+    }
+
+    public DetectionStatus getStatus() {
+        return status;
+    }
+
+    public SoundActivityGate getActivityGate() {
+        return pipeline != null ? pipeline.getActivityGate() : null;
+    }
+
+    public DetectionAggregator getAggregator() {
+        return aggregator;
+    }
+
+    public AlertOutbox getOutbox() {
+        return outbox;
+    }
+
+    public DetectionJournal getJournal() {
+        return journal;
+    }
+
+    private void classificationLoop() {
+        long lost = 0;
+        while (isListening.get()) {
+            try {
+                // Si la inferencia se retrasó, las ventanas acumuladas van juntas al intérprete
+                int count = ringBuffer.awaitWindows(windows, windows.length, TimeUnit.MILLISECONDS.toNanos(500));
+                if (count == 0) {
+                    continue;
+                }
+                // Tras ventanas perdidas el audio no es continuo y las tramas acumuladas no sirven
+                long lostNow = ringBuffer.getWindowsDropped() + ringBuffer.getOverruns();
+                if (lostNow != lost) {
+                    lost = lostNow;
+                    pipeline.resetFeatures();
+                }
+                PipelineMetrics.getInstance().record(PipelineMetrics.Stage.CAPTURE, System.nanoTime() - ringBuffer.getLastWriteNanos());
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < count; i++) {
+                    windowTimestamps[i] = now - (count - 1 - i) * hopMs;
+                }
+                pipeline.processBatch(windows, count, windowTimestamps);
+            } catch (Exception e) {
+                Log.e(TAG, "Error en clasificación", e);
+            }
+        }
+        SoundActivityGate activityGate = pipeline.getActivityGate();
+        Log.d(TAG, "Ventanas procesadas: " + ringBuffer.getWindowsConsumed()
+                + ", descartadas: " + ringBuffer.getWindowsDropped()
+                + ", sobrescrituras: " + ringBuffer.getOverruns()
+                + ", omitidas por silencio: " + activityGate.getWindowsSkipped()
+                + ", con actividad: " + activityGate.getWindowsClassified()
+                + ", en el clasificador completo: " + pipeline.getWindowsClassified());
+    }
+
+    private void sendEmergencyAlert(String detectedSound, long detectedAtNanos) {
+        if (!hasSmsPermission()) {
+            Log.e(TAG, "Se necesita permiso para enviar SMS");
+            recordAlert(detectedSound, DetectionJournal.ALERT_NO_PERMISSION, 0);
+            return;
+        }
+
+        DetectionConfig current = config;
+        EmergencyData emergencyData = current.getEmergencyData();
+        List<EmergencyContact> contacts = emergencyData.contacts;
+        recordAlert(detectedSound, contacts.isEmpty() ? DetectionJournal.ALERT_NO_CONTACTS : DetectionJournal.ALERT_QUEUED, contacts.size());
+
+        String movimiento = LocationTrail.getInstance().describeMovement(SystemClock.elapsedRealtime(), MOVEMENT_WINDOW_MS);
+        String mensajeFinal = AlertMessageBuilder.build(emergencyData.baseMessage, detectedSound, movimiento);
+
+        if (!hasLocationPermission()) {
+            sendSMS(contacts, mensajeFinal, detectedAtNanos);
+            return;
+        }
+
+        // La caché de LocationService evita esperar a un GPS frío en el momento de la alerta
+        long maxAgeMs = current.getLocationMaxAgeMs();
+        LocationCache.Fix fix = LocationCache.getInstance().getFreshFix(SystemClock.elapsedRealtime(), maxAgeMs);
+        if (fix != null) {
+            sendSMS(contacts, AlertMessageBuilder.withLocation(mensajeFinal, fix.latitude, fix.longitude, true), detectedAtNanos);
+            return;
+        }
+
+        try {
+            fusedLocationClient.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
+                    .addOnCompleteListener(task -> {
+                        String mensajeConUbicacion = mensajeFinal;
+                        if (task.isSuccessful() && task.getResult() != null) {
+                            Location location = task.getResult();
+                            mensajeConUbicacion = AlertMessageBuilder.withLocation(mensajeFinal, location.getLatitude(), location.getLongitude(), true);
+                        } else {
+                            LocationCache.Fix lastFix = LocationCache.getInstance().getLastFix();
+                            if (lastFix != null) {
+                                mensajeConUbicacion = AlertMessageBuilder.withLocation(mensajeFinal, lastFix.latitude, lastFix.longitude, false);
+                            }
+                        }
+                        sendSMS(contacts, mensajeConUbicacion, detectedAtNanos);
+                    });
+        } catch (SecurityException se) {
+            sendSMS(contacts, mensajeFinal, detectedAtNanos);
+        }
+    }
+
+    private void sendSMS(List<EmergencyContact> contacts, String message, long detectedAtNanos) {
+        PipelineMetrics.getInstance().record(PipelineMetrics.Stage.LOCATION, System.nanoTime() - detectedAtNanos);
+        if (contacts.isEmpty() || message == null || message.isEmpty()) {
+            Log.e(TAG, "Número de teléfono o mensaje inválido.");
+            return;
+        }
+        // Nunca se toca la telefonía desde el hilo de detección
+        long[] ids = outbox.enqueue(contacts, message, detectedAtNanos);
+        Log.d(TAG, "Alerta encolada para " + ids.length + " contactos");
+    }
+
+    private void recordAlert(String label, byte outcome, int recipients) {
+        if (journal != null) {
+            journal.recordAlert(label, outcome, recipients, System.currentTimeMillis());
+        }
+    }
+
+    private boolean hasSmsPermission() {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.SEND_SMS) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private boolean hasLocationPermission() {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private void showToast(String message) {
+        mainHandler.post(() -> Toast.makeText(context, message, Toast.LENGTH_LONG).show());
+    }
+}
@@ -0,0 +1,436 @@
+package com.example.ailert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * Diario binario de sólo anexado con las clasificaciones por encima de un umbral mínimo,
+ * los incidentes, las decisiones de alerta y el resultado de cada SMS, para revisar un
+ * incidente después de un reinicio.
+ *
+ * Los registros tienen tamaño fijo ({@link #RECORD_BYTES}) y se escriben en un segmento
+ * mapeado en memoria: anotar es copiar unos bytes, sin llamadas al sistema ni objetos
+ * nuevos. El byte de tipo se escribe el último, así que un registro a medias se lee como
+ * el final del segmento. El siguiente segmento se crea y mapea de antemano en
+ * {@code maintenance}, así que al llenarse uno anotar sólo cambia de búfer; allí mismo se
+ * lleva a disco el segmento lleno, se compactan los antiguos (sólo conservan incidentes,
+ * alertas y SMS) y se borran los que superan la edad o el tamaño máximo del diario.
+ */
+public final class DetectionJournal {
+
+    public static final byte TYPE_CLASSIFICATION = 1;
+    public static final byte TYPE_SUSPICION = 2;
+    public static final byte TYPE_INCIDENT = 3;
+    public static final byte TYPE_ALERT = 4;
+    public static final byte TYPE_SMS = 5;
+
+    /** Resultado de una decisión de alerta ({@link #TYPE_ALERT}). */
+    public static final byte ALERT_QUEUED = 0;
+    public static final byte ALERT_NO_PERMISSION = 1;
+    public static final byte ALERT_NO_CONTACTS = 2;
+
+    public static final float DEFAULT_SCORE_FLOOR = 0.3f;
+
+    // tiempo (8) | tipo (1) | estado (1) | reservado (2) | puntaje (4) | valor (8) | texto ASCII (24)
+    static final int RECORD_BYTES = 48;
+    static final int TEXT_BYTES = 24;
+    static final int RECORDS_PER_SEGMENT = 1024;
+    static final int SEGMENT_BYTES = RECORD_BYTES * RECORDS_PER_SEGMENT;
+
+    private static final String PREFIX = "diario-";
+    private static final String SUFFIX = ".seg";
+    // Los segmentos cerrados hace más de esto se quedan sólo con los registros de alerta
+    private static final long COMPACT_AFTER_MS = 24 * 60 * 60_000L;
+
+    private final File directory;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final Executor maintenance;
+
+    private static final class Segment {
+        final long number;
+        final MappedByteBuffer buffer;
+
+        Segment(long number, MappedByteBuffer buffer) {
+            this.number = number;
+            this.buffer = buffer;
+        }
+    }
+
+    private MappedByteBuffer segment;
+    private long segmentNumber;
+    // Último número de segmento asignado, en uso o en preparación
+    private long lastAllocated;
+    private int position;
+    private long recordsWritten;
+    // Lo publica el hilo de mantenimiento; append lo toma con una simple lectura
+    private volatile Segment spare;
+
+    public DetectionJournal(File directory, long maxBytes, long maxAgeMs, Executor maintenance) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = Math.max(SEGMENT_BYTES, maxBytes);
+        this.maxAgeMs = maxAgeMs;
+        this.maintenance = maintenance;
+        File[] existing = listSegments(directory);
+        // Tras un reinicio se continúa en un segmento nuevo; el anterior queda cerrado tal cual
+        lastAllocated = existing.length > 0 ? numberOf(existing[existing.length - 1]) : 0;
+        segmentNumber = ++lastAllocated;
+        segment = mapSegment(segmentNumber);
+        long active = segmentNumber;
+        maintenance.execute(() -> maintain(active, System.currentTimeMillis()));
+        prepareSpare();
+    }
+
+    public void recordClassification(String label, float score, long timestampMs) {
+        append(TYPE_CLASSIFICATION, (byte) 0, score, 0, label, timestampMs);
+    }
+
+    public void recordSuspicion(String label, float score, long timestampMs) {
+        append(TYPE_SUSPICION, (byte) 0, score, 0, label, timestampMs);
+    }
+
+    public void recordIncident(String label, float peakScore, long timestampMs) {
+        append(TYPE_INCIDENT, (byte) 0, peakScore, 0, label, timestampMs);
+    }
+
+    /** {@code outcome} es uno de los {@code ALERT_*}; {@code recipients} los contactos encolados. */
+    public void recordAlert(String label, byte outcome, int recipients, long timestampMs) {
+        append(TYPE_ALERT, outcome, 0f, recipients, label, timestampMs);
+    }
+
+    /** {@code status} es el ordinal de {@code AlertOutbox.Status}; el diario no depende de Android. */
+    public void recordSms(long id, String phoneNumber, int status, long timestampMs) {
+        append(TYPE_SMS, (byte) status, 0f, id, phoneNumber, timestampMs);
+    }
+
+    /**
+     * Escribe un registro. Lo llaman el hilo de detección y los de la bandeja de salida;
+     * al llenarse un segmento se pasa al que ya preparó {@code maintenance}, y sólo si éste
+     * va atrasado se crea y mapea uno aquí mismo.
+     */
+    private synchronized void append(byte type, byte status, float score, long value, String text, long timestampMs) {
+        if (segment == null) {
+            return;
+        }
+        if (position + RECORD_BYTES > SEGMENT_BYTES) {
+            try {
+                rollSegment();
+            } catch (IOException e) {
+                // Sin diario la detección sigue; se pierde el historial hasta el próximo arranque
+                segment = null;
+                return;
+            }
+        }
+        MappedByteBuffer buffer = segment;
+        int base = position;
+        buffer.putLong(base, timestampMs);
+        buffer.put(base + 9, status);
+        buffer.putFloat(base + 12, score);
+        buffer.putLong(base + 16, value);
+        int length = text != null ? Math.min(text.length(), TEXT_BYTES) : 0;
+        for (int i = 0; i < TEXT_BYTES; i++) {
+            char c = i < length ? text.charAt(i) : 0;
+            buffer.put(base + 24 + i, (byte) (c < 128 ? c : '?'));
+        }
+        // Último: confirma el registro
+        buffer.put(base + 8, type);
+        position += RECORD_BYTES;
+        recordsWritten++;
+    }
+
+    private void rollSegment() throws IOException {
+        MappedByteBuffer full = segment;
+        Segment next = spare;
+        spare = null;
+        if (next != null && next.number > segmentNumber) {
+            segment = next.buffer;
+            segmentNumber = next.number;
+        } else {
+            // Un segmento preparado tarde queda vacío y la poda lo borra como cualquier otro
+            segmentNumber = ++lastAllocated;
+            segment = mapSegment(segmentNumber);
+        }
+        position = 0;
+        long active = segmentNumber;
+        maintenance.execute(() -> {
+            full.force();
+            maintain(active, System.currentTimeMillis());
+        });
+        prepareSpare();
+    }
+
+    /** Pide a {@code maintenance} el segmento que seguirá al activo. */
+    private void prepareSpare() {
+        long number = ++lastAllocated;
+        maintenance.execute(() -> {
+            try {
+                spare = new Segment(number, mapSegment(number));
+            } catch (IOException e) {
+                // append lo creará cuando lo necesite
+            }
+        });
+    }
+
+    private MappedByteBuffer mapSegment(long number) throws IOException {
+        File file = new File(directory, String.format(Locale.US, "%s%08d%s", PREFIX, number, SUFFIX));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Un archivo nuevo se lee como ceros: el primer tipo 0 marca el final
+            raf.setLength(SEGMENT_BYTES);
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+    }
+
+    /**
+     * Lleva a disco lo escrito en el segmento activo; no hace falta para que otros lo lean.
+     * Se espera fuera del cerrojo, así que anotar no se bloquea mientras tanto.
+     */
+    public void sync() {
+        MappedByteBuffer current;
+        synchronized (this) {
+            current = segment;
+        }
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    public synchronized void close() {
+        if (segment != null) {
+            segment.force();
+        }
+        segment = null;
+    }
+
+    public synchronized long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    /** Compacta y poda los segmentos cerrados; nunca toca {@code activeNumber} ni los preparados. */
+    private void maintain(long activeNumber, long nowMs) {
+        File[] segments = listSegments(directory);
+        long total = 0;
+        for (File file : segments) {
+            // Los preparados aún vacíos no cuentan contra el límite
+            if (numberOf(file) <= activeNumber) {
+                total += file.length();
+            }
+        }
+        for (File file : segments) {
+            if (numberOf(file) >= activeNumber) {
+                break;
+            }
+            long length = file.length();
+            long newest = newestTimestamp(file);
+            if (total > maxBytes || nowMs - newest > maxAgeMs) {
+                if (file.delete()) {
+                    total -= length;
+                }
+            } else if (nowMs - newest > COMPACT_AFTER_MS && length == SEGMENT_BYTES) {
+                compact(file);
+                total += file.length() - length;
+            }
+        }
+    }
+
+    /** Reescribe el segmento sin clasificaciones ni sospechas; el archivo queda del tamaño de lo conservado. */
+    private static void compact(File file) {
+        ByteBuffer kept = ByteBuffer.allocate(SEGMENT_BYTES);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        int dropped = 0;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            while (readRecord(channel, record)) {
+                byte type = record.get(8);
+                if (type == TYPE_INCIDENT || type == TYPE_ALERT || type == TYPE_SMS) {
+                    kept.put(record);
+                } else {
+                    dropped++;
+                }
+            }
+        } catch (IOException e) {
+            return;
+        }
+        if (dropped == 0 && kept.position() == SEGMENT_BYTES) {
+            return;
+        }
+        kept.flip();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            out.getChannel().write(kept);
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    private static long newestTimestamp(File file) {
+        long newest = Long.MIN_VALUE;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            while (readRecord(channel, record)) {
+                newest = Math.max(newest, record.getLong(0));
+            }
+        } catch (IOException e) {
+            return Long.MIN_VALUE;
+        }
+        // Un segmento vacío no tiene nada que conservar
+        return newest == Long.MIN_VALUE ? Long.MIN_VALUE / 2 : newest;
+    }
+
+    /** Lee el siguiente registro confirmado en {@code record}, listo para releerse desde 0. */
+    private static boolean readRecord(FileChannel channel, ByteBuffer record) throws IOException {
+        record.clear();
+        while (record.hasRemaining()) {
+            if (channel.read(record) < 0) {
+                return false;
+            }
+        }
+        record.flip();
+        return record.get(8) != 0;
+    }
+
+    static File[] listSegments(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        // Nombres con relleno de ceros: el orden alfabético es el cronológico
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static long numberOf(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** Lector secuencial de todos los segmentos, del más antiguo al más reciente. */
+    public Scanner scan() {
+        return scan(directory);
+    }
+
+    /** Igual que {@link #scan()} sin abrir el diario para escribir. */
+    public static Scanner scan(File directory) {
+        return new Scanner(directory);
+    }
+
+    /** Un registro leído. El {@link Scanner} reutiliza la misma instancia en cada {@code next()}. */
+    public static final class Record {
+        public long timestampMs;
+        public byte type;
+        public byte status;
+        public float score;
+        public long value;
+        private final byte[] text = new byte[TEXT_BYTES];
+        private int textLength;
+
+        /** Etiqueta, o número de teléfono en los registros de SMS. */
+        public String getText() {
+            return new String(text, 0, textLength, StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public String toString() {
+            String kind;
+            switch (type) {
+                case TYPE_CLASSIFICATION: kind = "clasificación"; break;
+                case TYPE_SUSPICION: kind = "sospecha"; break;
+                case TYPE_INCIDENT: kind = "incidente"; break;
+                case TYPE_ALERT: kind = "alerta"; break;
+                case TYPE_SMS: kind = "sms"; break;
+                default: kind = "tipo " + type;
+            }
+            if (type == TYPE_SMS) {
+                return String.format(Locale.US, "%d %s #%d %s estado=%d", timestampMs, kind, value, getText(), status);
+            }
+            if (type == TYPE_ALERT) {
+                return String.format(Locale.US, "%d %s %s resultado=%d contactos=%d", timestampMs, kind, getText(), status, value);
+            }
+            return String.format(Locale.US, "%d %s %s %.2f", timestampMs, kind, getText(), score);
+        }
+    }
+
+    public static final class Scanner {
+        private final List<File> segments;
+        private final ByteBuffer buffer = ByteBuffer.allocate(SEGMENT_BYTES);
+        private final Record record = new Record();
+        private int segmentIndex = -1;
+
+        Scanner(File directory) {
+            this.segments = new ArrayList<>(Arrays.asList(listSegments(directory)));
+        }
+
+        /** Avanza al siguiente registro; devuelve null al terminar. */
+        public Record next() {
+            while (true) {
+                if (segmentIndex >= 0 && buffer.remaining() >= RECORD_BYTES) {
+                    int base = buffer.position();
+                    byte type = buffer.get(base + 8);
+                    if (type != 0) {
+                        fill(base, type);
+                        buffer.position(base + RECORD_BYTES);
+                        return record;
+                    }
+                }
+                if (!loadNextSegment()) {
+                    return null;
+                }
+            }
+        }
+
+        private void fill(int base, byte type) {
+            record.timestampMs = buffer.getLong(base);
+            record.type = type;
+            record.status = buffer.get(base + 9);
+            record.score = buffer.getFloat(base + 12);
+            record.value = buffer.getLong(base + 16);
+            int length = 0;
+            while (length < TEXT_BYTES && buffer.get(base + 24 + length) != 0) {
+                record.text[length] = buffer.get(base + 24 + length);
+                length++;
+            }
+            record.textLength = length;
+        }
+
+        private boolean loadNextSegment() {
+            while (++segmentIndex < segments.size()) {
+                buffer.clear();
+                // Un segmento borrado por la poda mientras se lee simplemente se salta
+                try (RandomAccessFile in = new RandomAccessFile(segments.get(segmentIndex), "r")) {
+                    FileChannel channel = in.getChannel();
+                    int read = 0;
+                    while (buffer.hasRemaining() && read >= 0) {
+                        read = channel.read(buffer);
+                    }
+                } catch (IOException e) {
+                    continue;
+                }
+                buffer.flip();
+                return true;
+            }
+            return false;
+        }
+    }
+}
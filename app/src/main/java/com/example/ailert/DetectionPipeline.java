@@ -0,0 +1,226 @@
+package com.example.ailert;
+
+/**
+ * Procesamiento de una ventana ya capturada: compuerta de actividad, detector de
+ * candidatos (primera etapa de la cascada), clasificación completa y agregación en
+ * incidentes. No depende de Android ni del origen del audio, así que lo comparten la
+ * detección en vivo y la reproducción de incidentes grabados.
+ *
+ * Con un modelo de características ({@link #setFeatureStream}) cada ventana sólo aporta
+ * sus {@code hop} muestras nuevas al {@link LogMelStream}, y el clasificador recibe las
+ * últimas tramas log-mel en lugar de la forma de onda.
+ */
+public class DetectionPipeline {
+
+    /** Ventanas como máximo en {@link #processBatch}. */
+    public static final int MAX_BATCH = 4;
+
+    public interface Listener {
+        /** Categoría principal de cada ventana clasificada. */
+        void onClassification(String label, float score);
+
+        /** Una ventana superó la decisión de peligro, antes de confirmar el incidente. */
+        void onSuspicion(String label, float score);
+    }
+
+    private final SoundActivityGate activityGate;
+    private final CandidateDetector candidateDetector;
+    private final SoundClassifier classifier;
+    private final DetectionAggregator aggregator;
+    private final Listener listener;
+    private final LabelDecision decision;
+
+    private volatile DetectionConfig config;
+    private DetectionConfig appliedConfig;
+
+    // Reservados una vez: procesar un lote no crea objetos
+    private final float[][] batchScores;
+    private final float[][] candidates = new float[MAX_BATCH][];
+    private final boolean[] passed = new boolean[MAX_BATCH];
+    private final float[][] singleWindow = new float[1][];
+    private final long[] singleTimestamp = new long[1];
+    private float[] lastScores;
+
+    // Sólo con modelos de características log-mel
+    private LogMelStream featureStream;
+    private int featureHop;
+    private int featureFrames;
+    private float[][] featureInputs;
+    private boolean featuresPrimed;
+
+    private long windowsProcessed;
+    private long windowsClassified;
+    private long classifyNanos;
+
+    public DetectionPipeline(SoundActivityGate activityGate, CandidateDetector candidateDetector, SoundClassifier classifier,
+                             DetectionAggregator aggregator, Listener listener, DetectionConfig config) {
+        this.activityGate = activityGate;
+        this.candidateDetector = candidateDetector;
+        this.classifier = classifier;
+        this.aggregator = aggregator;
+        this.listener = listener;
+        this.decision = new LabelDecision(classifier.getLabels(), DetectionConfig.DEFAULT_THRESHOLD);
+        this.batchScores = new float[MAX_BATCH][decision.size()];
+        this.lastScores = batchScores[0];
+        this.config = config;
+    }
+
+    /** Sustituye la configuración; se aplica al inicio de la siguiente ventana, en el hilo de detección. */
+    public void setConfig(DetectionConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Usa un modelo cuya entrada son {@code frames} tramas log-mel. Cada ventana procesada
+     * debe empezar {@code hopSize} muestras después de la anterior.
+     */
+    public void setFeatureStream(LogMelStream stream, int hopSize, int frames) {
+        this.featureStream = stream;
+        this.featureHop = hopSize;
+        this.featureFrames = frames;
+        this.featureInputs = new float[MAX_BATCH][frames * stream.getMelBins()];
+        this.featuresPrimed = false;
+    }
+
+    /** La próxima ventana no continúa a la anterior (p. ej. se descartaron ventanas): se recalcula entera. */
+    public void resetFeatures() {
+        if (featureStream != null) {
+            featureStream.reset();
+            featuresPrimed = false;
+        }
+    }
+
+    /** Procesa una ventana completa; {@code timestampMs} es el instante del final de la ventana. */
+    public void process(float[] window, long timestampMs) {
+        singleWindow[0] = window;
+        singleTimestamp[0] = timestampMs;
+        processBatch(singleWindow, 1, singleTimestamp);
+    }
+
+    /**
+     * Procesa {@code count} ventanas consecutivas (hasta {@link #MAX_BATCH}). La compuerta y la
+     * primera etapa se evalúan en orden; las ventanas que pasan se clasifican juntas en una
+     * sola llamada y la agregación vuelve a recorrerlas en orden de tiempo.
+     */
+    public void processBatch(float[][] windows, int count, long[] timestampsMs) {
+        DetectionConfig current = config;
+        if (current != appliedConfig) {
+            decision.apply(current);
+            aggregator.applyCooldowns(current);
+            candidateDetector.setThresholds(current.getImpulseThresholdDb(), current.getTonalityThreshold());
+            appliedConfig = current;
+        }
+
+        int pending = 0;
+        for (int i = 0; i < count; i++) {
+            windowsProcessed++;
+            if (featureStream != null) {
+                // Sólo el audio nuevo de la ventana: el resto ya está en tramas
+                float[] window = windows[i];
+                int fresh = featuresPrimed ? Math.min(featureHop, window.length) : window.length;
+                featureStream.push(window, window.length - fresh, fresh);
+                featuresPrimed = true;
+            }
+            passed[i] = screen(windows[i], current);
+            if (passed[i]) {
+                float[] input = windows[i];
+                if (featureStream != null) {
+                    input = featureInputs[pending];
+                    featureStream.copyLatest(featureFrames, input);
+                }
+                candidates[pending++] = input;
+            }
+        }
+
+        if (pending > 0) {
+            long start = System.nanoTime();
+            classifier.classifyBatch(candidates, pending, batchScores);
+            classifyNanos += System.nanoTime() - start;
+            windowsClassified += pending;
+        }
+
+        for (int i = 0, next = 0; i < count; i++) {
+            if (passed[i]) {
+                decide(batchScores[next++], timestampsMs[i]);
+            } else {
+                aggregator.decayOthers(null, timestampsMs[i]);
+            }
+        }
+        for (int i = 0; i < pending; i++) {
+            candidates[i] = null;
+        }
+    }
+
+    /** Compuerta de actividad y, si está activa, primera etapa de la cascada. */
+    private boolean screen(float[] window, DetectionConfig current) {
+        // Ventanas sin actividad sonora no despiertan al modelo
+        if (!activityGate.shouldClassify(window, 0, window.length)) {
+            return false;
+        }
+        if (!current.isCascadeEnabled()) {
+            return true;
+        }
+        // Sólo los candidatos impulsivos o tonales pagan el clasificador completo
+        long start = System.nanoTime();
+        boolean candidate = candidateDetector.isCandidate(window, 0, window.length);
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.record(PipelineMetrics.Stage.SCREEN, System.nanoTime() - start);
+        metrics.countScreened(candidate);
+        return candidate;
+    }
+
+    private void decide(float[] scores, long timestampMs) {
+        long start = System.nanoTime();
+        lastScores = scores;
+        int danger = decision.evaluate(scores);
+        int top = decision.getTopIndex();
+        if (listener != null && top >= 0) {
+            listener.onClassification(decision.label(top), scores[top]);
+        }
+        String dangerousLabel = null;
+        if (danger >= 0) {
+            dangerousLabel = decision.label(danger);
+            aggregator.onScore(dangerousLabel, scores[danger], timestampMs);
+            if (listener != null) {
+                listener.onSuspicion(dangerousLabel, scores[danger]);
+            }
+        }
+        aggregator.decayOthers(dangerousLabel, timestampMs);
+        PipelineMetrics.getInstance().record(PipelineMetrics.Stage.DECISION, System.nanoTime() - start);
+    }
+
+    public SoundActivityGate getActivityGate() {
+        return activityGate;
+    }
+
+    public CandidateDetector getCandidateDetector() {
+        return candidateDetector;
+    }
+
+    public DetectionAggregator getAggregator() {
+        return aggregator;
+    }
+
+    public LabelDecision getDecision() {
+        return decision;
+    }
+
+    /** Puntuaciones de la última ventana clasificada; sólo válidas en el hilo de detección. */
+    public float[] getScores() {
+        return lastScores;
+    }
+
+    public long getWindowsProcessed() {
+        return windowsProcessed;
+    }
+
+    /** Ventanas que llegaron al clasificador completo. */
+    public long getWindowsClassified() {
+        return windowsClassified;
+    }
+
+    /** Tiempo total dentro del clasificador, en nanosegundos. */
+    public long getClassifyNanos() {
+        return classifyNanos;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.ailert;
+
+/**
+ * Último estado publicado por la detección: etiqueta principal, puntaje e instante.
+ *
+ * El hilo de detección sólo escribe campos primitivos y referencias a etiquetas ya
+ * existentes, sin crear objetos ni tocar el hilo principal; la interfaz lo muestrea a su
+ * propio ritmo mientras es visible. Las lecturas usan un contador de secuencia
+ * (seqlock) para no mezclar campos de dos ventanas distintas.
+ */
+public final class DetectionStatus {
+
+    /** Copia propiedad del lector, reutilizable entre muestreos. */
+    public static final class Sample {
+        public String label;
+        public float score;
+        public long timestampMs;
+        public long version;
+    }
+
+    private volatile long sequence;
+    private volatile String label;
+    private volatile float score;
+    private volatile long timestampMs;
+
+    /** Un único escritor: el hilo de detección. */
+    public void publish(String label, float score, long timestampMs) {
+        long next = sequence + 1;
+        sequence = next; // impar: escritura en curso
+        this.label = label;
+        this.score = score;
+        this.timestampMs = timestampMs;
+        sequence = next + 1;
+    }
+
+    /** Cambia con cada publicación; permite saltarse el redibujado si no hay nada nuevo. */
+    public long getVersion() {
+        return sequence >>> 1;
+    }
+
+    /** Copia el último estado en {@code into}; devuelve false si todavía no se publicó nada. */
+    public boolean copyTo(Sample into) {
+        while (true) {
+            long before = sequence;
+            if ((before & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            String currentLabel = label;
+            float currentScore = score;
+            long currentTimestamp = timestampMs;
+            if (sequence == before) {
+                into.label = currentLabel;
+                into.score = currentScore;
+                into.timestampMs = currentTimestamp;
+                into.version = before >>> 1;
+                return currentLabel != null;
+            }
+        }
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public float getScore() {
+        return score;
+    }
+}
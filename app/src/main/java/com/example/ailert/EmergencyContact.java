@@ -0,0 +1,79 @@
+package com.example.ailert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Un contacto de emergencia con su número ya normalizado (sólo dígitos y '+').
+ * La lista ordenada se guarda en la preferencia "contactos", una línea por contacto.
+ */
+public final class EmergencyContact {
+
+    public static final int MAX_CONTACTS = 5;
+
+    public final String name;
+    public final String number;
+
+    public EmergencyContact(String name, String rawNumber) {
+        this.name = name == null ? "" : name.replace('\t', ' ').replace('\n', ' ');
+        this.number = normalize(rawNumber);
+    }
+
+    public static String normalize(String rawNumber) {
+        return rawNumber == null ? "" : rawNumber.replaceAll("[^0-9+]", "");
+    }
+
+    /** Formato de la preferencia: "nombre\tnúmero" por línea, en orden de prioridad. */
+    public static String encode(List<EmergencyContact> contacts) {
+        StringBuilder out = new StringBuilder();
+        for (EmergencyContact contact : contacts) {
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append(contact.name).append('\t').append(contact.number);
+        }
+        return out.toString();
+    }
+
+    /** Lee la lista guardada; descarta líneas sin número y duplicados. */
+    public static List<EmergencyContact> decode(String encoded) {
+        List<EmergencyContact> contacts = new ArrayList<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return contacts;
+        }
+        for (String line : encoded.split("\n")) {
+            int tab = line.lastIndexOf('\t');
+            EmergencyContact contact = tab >= 0
+                    ? new EmergencyContact(line.substring(0, tab), line.substring(tab + 1))
+                    : new EmergencyContact("", line);
+            if (!contact.number.isEmpty() && indexOf(contacts, contact.number) < 0) {
+                contacts.add(contact);
+            }
+        }
+        return contacts;
+    }
+
+    /** Agrega al final (o no hace nada si el número ya está o la lista está llena). */
+    public static List<EmergencyContact> append(List<EmergencyContact> contacts, EmergencyContact contact) {
+        List<EmergencyContact> result = new ArrayList<>(contacts);
+        if (!contact.number.isEmpty() && indexOf(result, contact.number) < 0 && result.size() < MAX_CONTACTS) {
+            result.add(contact);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static int indexOf(List<EmergencyContact> contacts, String number) {
+        for (int i = 0; i < contacts.size(); i++) {
+            if (contacts.get(i).number.equals(number)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return name.isEmpty() ? number : name + " (" + number + ")";
+    }
+}
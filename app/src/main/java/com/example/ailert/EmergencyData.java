@@ -0,0 +1,54 @@
+package com.example.ailert;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contactos y mensaje de emergencia tal como se guardan en preferencias, ya normalizados.
+ */
+public final class EmergencyData {
+
+    public static final String DEFAULT_MESSAGE = "¡Ayuda! Esta es una emergencia.";
+
+    /** En orden de prioridad; el primero es el que se intenta antes. */
+    public final List<EmergencyContact> contacts;
+    public final String baseMessage;
+
+    private EmergencyData(List<EmergencyContact> contacts, String baseMessage) {
+        this.contacts = Collections.unmodifiableList(contacts);
+        this.baseMessage = baseMessage;
+    }
+
+    /** Un único contacto a partir de los valores crudos de "contacto_numero" y "mensaje_base". */
+    public static EmergencyData of(String rawNumber, String message) {
+        EmergencyContact contact = new EmergencyContact("", rawNumber);
+        return new EmergencyData(
+                contact.number.isEmpty() ? Collections.<EmergencyContact>emptyList() : Collections.singletonList(contact),
+                message == null ? DEFAULT_MESSAGE : message);
+    }
+
+    /**
+     * Lee la lista "contactos" de {@code SharedPreferences.getAll()}; si no existe todavía,
+     * usa el contacto único que guardaban las versiones anteriores.
+     */
+    public static EmergencyData fromValues(Map<String, ?> values) {
+        Object message = values.get("mensaje_base");
+        String baseMessage = message instanceof String ? (String) message : DEFAULT_MESSAGE;
+        Object encoded = values.get("contactos");
+        if (encoded instanceof String) {
+            return new EmergencyData(EmergencyContact.decode((String) encoded), baseMessage);
+        }
+        Object number = values.get("contacto_numero");
+        return of(number instanceof String ? (String) number : "", baseMessage);
+    }
+
+    /** Número del primer contacto, o cadena vacía. */
+    public String primaryNumber() {
+        return contacts.isEmpty() ? "" : contacts.get(0).number;
+    }
+
+    public boolean isComplete() {
+        return !contacts.isEmpty() && !baseMessage.isEmpty();
+    }
+}
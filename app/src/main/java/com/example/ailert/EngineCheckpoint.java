@@ -0,0 +1,78 @@
+package com.example.ailert;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estado mínimo del motor que debe sobrevivir a un reinicio del servicio: cuándo emitió
+ * cada etiqueta por última vez, para que un sonido que sigue sonando no vuelva a alertar
+ * dentro de su enfriamiento. Si el servicio debe seguir armado lo decide la preferencia
+ * "service_running", y los mensajes pendientes ya viven en disco en {@link AlertOutbox};
+ * aquí sólo se anota cuántos había.
+ *
+ * Se escribe en un archivo temporal y se renombra, así que un corte a mitad de la
+ * escritura deja el punto de control anterior intacto.
+ */
+public final class EngineCheckpoint {
+
+    private static final int MAGIC = 0x41494c32; // "AIL2"
+
+    public final long savedAtMs;
+    public final Map<String, Long> lastEmissions;
+    public final int pendingAlerts;
+
+    public EngineCheckpoint(long savedAtMs, Map<String, Long> lastEmissions, int pendingAlerts) {
+        this.savedAtMs = savedAtMs;
+        this.lastEmissions = Collections.unmodifiableMap(new HashMap<>(lastEmissions));
+        this.pendingAlerts = pendingAlerts;
+    }
+
+    public void writeTo(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(MAGIC);
+            out.writeLong(savedAtMs);
+            out.writeInt(pendingAlerts);
+            out.writeInt(lastEmissions.size());
+            for (Map.Entry<String, Long> entry : lastEmissions.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("No se pudo confirmar " + file.getName());
+        }
+    }
+
+    /** Lee el punto de control, o null si no existe o está dañado. */
+    public static EngineCheckpoint readFrom(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            long savedAtMs = in.readLong();
+            int pendingAlerts = in.readInt();
+            int count = in.readInt();
+            if (count < 0 || count > 1024) {
+                return null;
+            }
+            Map<String, Long> emissions = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                emissions.put(in.readUTF(), in.readLong());
+            }
+            return new EngineCheckpoint(savedAtMs, emissions, pendingAlerts);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.ailert;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Guarda como evidencia el audio alrededor de un incidente confirmado: los últimos
+ * segundos antes de la detección (pre-roll) y los siguientes (post-roll), en un WAV PCM
+ * de 16 bits sin comprimir (unos 32 KB por segundo a 16 kHz): gzip apenas reduce audio de
+ * banda ancha, así que el límite de tamaño se calcula sobre PCM crudo.
+ *
+ * El hilo de captura mantiene el pre-roll en un anillo de PCM de 16 bits y, tras
+ * {@link #trigger}, copia el post-roll en uno de dos buffers de clip reutilizados. La
+ * escritura ocurre en {@code io}; si los dos buffers siguen ocupados el
+ * clip se descarta en lugar de esperar, así que la captura nunca se bloquea. Al guardar se
+ * borran los clips más antiguos hasta quedar por debajo de {@code maxBytes}.
+ */
+public final class EvidenceRecorder {
+
+    public interface Listener {
+        void onClipSaved(File file, String label);
+    }
+
+    private static final String SUFFIX = ".wav";
+    private static final int CLIP_BUFFERS = 2;
+
+    private static final class Clip {
+        final short[] samples;
+        int length;
+        String label;
+        long timestampMs;
+
+        Clip(int capacity) {
+            this.samples = new short[capacity];
+        }
+    }
+
+    private static final class Trigger {
+        final String label;
+        final long timestampMs;
+
+        Trigger(String label, long timestampMs) {
+            this.label = label;
+            this.timestampMs = timestampMs;
+        }
+    }
+
+    private final int sampleRate;
+    private final File directory;
+    private final long maxBytes;
+    private final Executor io;
+    private final Listener listener;
+
+    // Sólo los usa el hilo de captura
+    private final short[] preRoll;
+    private long preRollWritten;
+    private Clip recording;
+
+    private final BlockingQueue<Clip> free = new ArrayBlockingQueue<>(CLIP_BUFFERS);
+    private final AtomicReference<Trigger> pending = new AtomicReference<>();
+    // Sólo lo usa el hilo de E/S
+    private final byte[] bytes = new byte[8192];
+
+    private final AtomicLong clipsSaved = new AtomicLong();
+    private final AtomicLong clipsDropped = new AtomicLong();
+
+    public EvidenceRecorder(int sampleRate, int preRollMs, int postRollMs, File directory, long maxBytes,
+                            Executor io, Listener listener) {
+        this.sampleRate = sampleRate;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.io = io;
+        this.listener = listener;
+        int preRollSamples = (int) ((long) sampleRate * preRollMs / 1000);
+        int postRollSamples = (int) ((long) sampleRate * postRollMs / 1000);
+        this.preRoll = new short[Math.max(1, preRollSamples)];
+        for (int i = 0; i < CLIP_BUFFERS; i++) {
+            free.add(new Clip(preRoll.length + postRollSamples));
+        }
+    }
+
+    /**
+     * Pide un clip del incidente. Lo llama el hilo de detección; el clip empieza en la
+     * siguiente escritura de la captura. Si ya se está grabando uno, el incidente queda
+     * dentro de ese clip.
+     */
+    public void trigger(String label, long timestampMs) {
+        pending.set(new Trigger(label, timestampMs));
+    }
+
+    /** Llamado sólo desde el hilo de captura, con cada bloque que se escribe en el anillo. */
+    public void write(float[] src, int offset, int length) {
+        if (pending.get() != null) {
+            start(pending.getAndSet(null));
+        }
+        short[] ring = preRoll;
+        int position = (int) (preRollWritten % ring.length);
+        Clip clip = recording;
+        for (int i = 0; i < length; i++) {
+            short sample = PcmConverter.toPcm16(src[offset + i]);
+            ring[position] = sample;
+            if (++position == ring.length) {
+                position = 0;
+            }
+            if (clip != null) {
+                clip.samples[clip.length++] = sample;
+                if (clip.length == clip.samples.length) {
+                    submit(clip);
+                    clip = null;
+                }
+            }
+        }
+        preRollWritten += length;
+    }
+
+    /** Entrega el clip en curso aunque no tenga todo el post-roll, p. ej. al detener la captura. */
+    public void flush() {
+        if (recording != null) {
+            submit(recording);
+        }
+    }
+
+    private void start(Trigger trigger) {
+        if (trigger == null || recording != null) {
+            return;
+        }
+        Clip clip = free.poll();
+        if (clip == null) {
+            // El hilo de E/S sigue con los clips anteriores; nunca se le espera
+            clipsDropped.incrementAndGet();
+            return;
+        }
+        int available = (int) Math.min(preRollWritten, preRoll.length);
+        int oldest = (int) ((preRollWritten - available) % preRoll.length);
+        int first = Math.min(available, preRoll.length - oldest);
+        System.arraycopy(preRoll, oldest, clip.samples, 0, first);
+        System.arraycopy(preRoll, 0, clip.samples, first, available - first);
+        clip.length = available;
+        clip.label = trigger.label;
+        clip.timestampMs = trigger.timestampMs;
+        recording = clip;
+        if (clip.length == clip.samples.length) {
+            // Sin post-roll: el clip ya está completo
+            submit(clip);
+        }
+    }
+
+    private void submit(Clip clip) {
+        recording = null;
+        try {
+            io.execute(() -> save(clip));
+        } catch (RuntimeException e) {
+            // Ejecutor detenido: el buffer vuelve al grupo sin guardar nada
+            clipsDropped.incrementAndGet();
+            free.offer(clip);
+        }
+    }
+
+    private void save(Clip clip) {
+        // El buffer puede reutilizarse en cuanto vuelve al grupo
+        String label = clip.label;
+        File file = new File(directory, String.format(Locale.US, "%d-%s%s", clip.timestampMs, label, SUFFIX));
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("No se pudo crear " + directory);
+            }
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+                writeWav(out, clip.samples, clip.length);
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("No se pudo confirmar " + file.getName());
+            }
+            clipsSaved.incrementAndGet();
+        } catch (IOException e) {
+            tmp.delete();
+            clipsDropped.incrementAndGet();
+            file = null;
+        } finally {
+            free.offer(clip);
+        }
+        enforceCap();
+        if (file != null && listener != null) {
+            listener.onClipSaved(file, label);
+        }
+    }
+
+    private void writeWav(OutputStream out, short[] samples, int length) throws IOException {
+        int dataBytes = length * 2;
+        int n = 0;
+        n = putTag(n, "RIFF");
+        n = putIntLe(n, 36 + dataBytes);
+        n = putTag(n, "WAVE");
+        n = putTag(n, "fmt ");
+        n = putIntLe(n, 16);
+        n = putShortLe(n, 1);           // PCM
+        n = putShortLe(n, 1);           // mono
+        n = putIntLe(n, sampleRate);
+        n = putIntLe(n, sampleRate * 2); // bytes por segundo
+        n = putShortLe(n, 2);           // bytes por trama
+        n = putShortLe(n, 16);
+        n = putTag(n, "data");
+        n = putIntLe(n, dataBytes);
+        out.write(bytes, 0, n);
+
+        int i = 0;
+        while (i < length) {
+            int count = Math.min(length - i, bytes.length / 2);
+            for (int j = 0; j < count; j++) {
+                short sample = samples[i + j];
+                bytes[2 * j] = (byte) sample;
+                bytes[2 * j + 1] = (byte) (sample >> 8);
+            }
+            out.write(bytes, 0, count * 2);
+            i += count;
+        }
+    }
+
+    private int putTag(int at, String tag) {
+        for (int i = 0; i < 4; i++) {
+            bytes[at + i] = (byte) tag.charAt(i);
+        }
+        return at + 4;
+    }
+
+    private int putIntLe(int at, int value) {
+        at = putShortLe(at, value);
+        return putShortLe(at, value >>> 16);
+    }
+
+    private int putShortLe(int at, int value) {
+        bytes[at] = (byte) value;
+        bytes[at + 1] = (byte) (value >> 8);
+        return at + 2;
+    }
+
+    /** Borra los clips más antiguos mientras se supere el límite; el más reciente siempre se conserva. */
+    private void enforceCap() {
+        File[] clips = listClips(directory);
+        long total = 0;
+        for (File clip : clips) {
+            total += clip.length();
+        }
+        for (int i = 0; i < clips.length - 1 && total > maxBytes; i++) {
+            long length = clips[i].length();
+            if (clips[i].delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    /** Clips guardados, del más antiguo al más reciente. */
+    public static File[] listClips(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        // El nombre empieza por el instante del incidente
+        Arrays.sort(files, (a, b) -> Long.compare(timestampOf(a), timestampOf(b)));
+        return files;
+    }
+
+    private static long timestampOf(File file) {
+        String name = file.getName();
+        int dash = name.indexOf('-');
+        try {
+            return Long.parseLong(dash > 0 ? name.substring(0, dash) : name);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public long getClipsSaved() {
+        return clipsSaved.get();
+    }
+
+    /** Clips perdidos porque la E/S iba retrasada o falló la escritura. */
+    public long getClipsDropped() {
+        return clipsDropped.get();
+    }
+}
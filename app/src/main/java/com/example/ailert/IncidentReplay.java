@@ -0,0 +1,150 @@
+package com.example.ailert;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pasa un audio grabado o sintético por el pipeline de detección completo sin esperar
+ * al reloj. Los tiempos de agregación y de los eventos se miden en tiempo de audio, así
+ * que el resultado es el mismo que en vivo pero se obtiene mucho más rápido.
+ */
+public final class IncidentReplay {
+
+    /** Reloj de CPU del hilo actual en nanosegundos (Debug.threadCpuTimeNanos en Android). */
+    public interface CpuClock {
+        long threadCpuNanos();
+    }
+
+    public static final class Event {
+        public final String label;
+        public final float peakScore;
+        /** Instante del audio en que se confirmó el incidente. */
+        public final long audioTimeMs;
+
+        Event(String label, float peakScore, long audioTimeMs) {
+            this.label = label;
+            this.peakScore = peakScore;
+            this.audioTimeMs = audioTimeMs;
+        }
+    }
+
+    public static final class Report {
+        public final long audioMs;
+        public final long wallNanos;
+        public final long cpuNanos;
+        public final long windows;
+        public final long windowsClassified;
+        public final List<Event> events;
+
+        Report(long audioMs, long wallNanos, long cpuNanos, long windows, long windowsClassified, List<Event> events) {
+            this.audioMs = audioMs;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.windows = windows;
+            this.windowsClassified = windowsClassified;
+            this.events = Collections.unmodifiableList(events);
+        }
+
+        /** Tiempo de proceso entre duración del audio; menor que 1 es más rápido que el tiempo real. */
+        public double realTimeFactor() {
+            return audioMs == 0 ? 0 : wallNanos / (audioMs * 1_000_000.0);
+        }
+
+        /** Segundos de CPU necesarios por cada hora de audio. */
+        public double cpuSecondsPerAudioHour() {
+            return audioMs == 0 ? 0 : cpuNanos / 1e9 * (3_600_000.0 / audioMs);
+        }
+
+        /** Primer incidente confirmado de la etiqueta, o null si no se detectó. */
+        public Event firstEvent(String label) {
+            for (Event event : events) {
+                if (event.label.equals(label)) {
+                    return event;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%.1f s de audio, RTF %.4f, %.1f s CPU/h, %d ventanas (%d clasificadas), %d incidentes",
+                    audioMs / 1000.0, realTimeFactor(), cpuSecondsPerAudioHour(), windows, windowsClassified, events.size());
+        }
+    }
+
+    private IncidentReplay() {
+    }
+
+    public static Report run(AudioSource source, int windowSize, SoundClassifier classifier,
+                             SoundActivityGate activityGate, DetectionConfig config, CpuClock cpuClock) throws IOException {
+        return run(source, windowSize, windowSize, 1, classifier, activityGate, config, cpuClock);
+    }
+
+    /**
+     * Como en vivo, con una ventana nueva cada {@code hopSize} muestras y hasta {@code batchSize}
+     * ventanas por llamada al clasificador. Un modelo de características recibe las tramas
+     * log-mel calculadas salto a salto, igual que en {@code DetectionEngine}.
+     */
+    public static Report run(AudioSource source, int windowSize, int hopSize, int batchSize, SoundClassifier classifier,
+                             SoundActivityGate activityGate, DetectionConfig config, CpuClock cpuClock) throws IOException {
+        final List<Event> events = new ArrayList<>();
+        DetectionAggregator aggregator = new DetectionAggregator(
+                (label, peakScore, timestampMs) -> events.add(new Event(label, peakScore, timestampMs)));
+        DetectionPipeline pipeline = new DetectionPipeline(activityGate, new CandidateDetector(source.getSampleRate()),
+                classifier, aggregator, null, config);
+        int frames = classifier.getFeatureFrames();
+        if (frames > 0) {
+            pipeline.setFeatureStream(new LogMelStream(source.getSampleRate(), classifier.getMelBins(), frames), hopSize, frames);
+        }
+
+        int batch = Math.max(1, Math.min(batchSize, DetectionPipeline.MAX_BATCH));
+        float[][] windows = new float[batch][windowSize];
+        long[] timestamps = new long[batch];
+        // Ventana deslizante: cada salto desplaza lo ya leído y añade hopSize muestras nuevas
+        float[] stream = new float[windowSize];
+        int sampleRate = source.getSampleRate();
+        long samples = 0;
+        long wallStart = System.nanoTime();
+        long cpuStart = cpuClock.threadCpuNanos();
+
+        source.start();
+        try {
+            int filled = 0;
+            int pending = 0;
+            while (true) {
+                int read = source.read(stream, filled, windowSize - filled);
+                if (read < 0) {
+                    break;
+                }
+                filled += read;
+                samples += read;
+                if (filled < windowSize) {
+                    continue;
+                }
+                System.arraycopy(stream, 0, windows[pending], 0, windowSize);
+                timestamps[pending++] = samples * 1000 / sampleRate;
+                if (pending == batch) {
+                    pipeline.processBatch(windows, pending, timestamps);
+                    pending = 0;
+                }
+                System.arraycopy(stream, hopSize, stream, 0, windowSize - hopSize);
+                filled = windowSize - hopSize;
+            }
+            if (pending > 0) {
+                pipeline.processBatch(windows, pending, timestamps);
+            }
+        } finally {
+            source.stop();
+        }
+
+        return new Report(samples * 1000 / sampleRate,
+                System.nanoTime() - wallStart,
+                cpuClock.threadCpuNanos() - cpuStart,
+                pipeline.getWindowsProcessed(),
+                pipeline.getWindowsClassified(),
+                events);
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.ailert;
+
+import android.content.Context;
+import android.os.Debug;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Mide la latencia de inferencia de varias configuraciones de ejecución sobre el mismo
+ * modelo, para elegir la más rápida en cada dispositivo sin recompilar. También compara
+ * el rendimiento en ventanas por segundo de una llamada por ventana frente a lotes de
+ * {@link DetectionPipeline#MAX_BATCH} ventanas por invocación.
+ *
+ * Con un modelo de características cada medición incluye, como en {@link DetectionPipeline},
+ * el cálculo log-mel del audio nuevo de un salto de media ventana y la copia de las tramas
+ * a la entrada del modelo.
+ */
+public class InferenceBenchmark {
+
+    public static final class Result {
+        public final ClassifierConfig config;
+        public final long p50Us;
+        public final long p95Us;
+        public final long p99Us;
+        public final double realTimeFactor;
+        public final long peakNativeHeapKb;
+        /** p50 del frente log-mel incluido en la latencia; 0 si el modelo recibe audio. */
+        public final long featureP50Us;
+        /** Ventanas por segundo con una invocación por ventana. */
+        public final double windowsPerSecond;
+        /** Ventanas por segundo con lotes de {@link DetectionPipeline#MAX_BATCH}. */
+        public final double batchedWindowsPerSecond;
+
+        Result(ClassifierConfig config, long p50Us, long p95Us, long p99Us, double realTimeFactor, long peakNativeHeapKb,
+               long featureP50Us, double windowsPerSecond, double batchedWindowsPerSecond) {
+            this.config = config;
+            this.p50Us = p50Us;
+            this.p95Us = p95Us;
+            this.p99Us = p99Us;
+            this.realTimeFactor = realTimeFactor;
+            this.peakNativeHeapKb = peakNativeHeapKb;
+            this.featureP50Us = featureP50Us;
+            this.windowsPerSecond = windowsPerSecond;
+            this.batchedWindowsPerSecond = batchedWindowsPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            String features = featureP50Us > 0 ? String.format(Locale.US, " (log-mel %.1f ms)", featureP50Us / 1000.0) : "";
+            return String.format(Locale.US, "%s: p50 %.1f ms%s, p95 %.1f ms, p99 %.1f ms, RTF %.3f, pico %d KB, %.1f ventanas/s (lote x%d: %.1f)",
+                    config.describe(), p50Us / 1000.0, features, p95Us / 1000.0, p99Us / 1000.0, realTimeFactor, peakNativeHeapKb,
+                    windowsPerSecond, DetectionPipeline.MAX_BATCH, batchedWindowsPerSecond);
+        }
+    }
+
+    public interface ProgressListener {
+        void onResult(Result result);
+    }
+
+    /**
+     * Combinaciones de hilos y acelerador que se prueban por defecto, todas sobre el modelo de
+     * {@code current}: la ejecución ganadora se guarda para la variante que usa la detección.
+     */
+    public static List<ClassifierConfig> defaultConfigs(ClassifierConfig current) {
+        List<ClassifierConfig> configs = new ArrayList<>();
+        for (int threads : new int[]{1, 2, 4}) {
+            configs.add(cpu(current).setNumThreads(threads).build());
+        }
+        configs.add(cpu(current).setNumThreads(2).setXnnpack(false).build());
+        configs.add(current.toBuilder()
+                .setNumThreads(-1)
+                .setAccelerator(ClassifierConfig.Accelerator.NNAPI)
+                .setXnnpack(true)
+                .build());
+        return configs;
+    }
+
+    private static ClassifierConfig.Builder cpu(ClassifierConfig current) {
+        return current.toBuilder().setAccelerator(ClassifierConfig.Accelerator.CPU).setXnnpack(true);
+    }
+
+    private final Context context;
+    private final int windows;
+
+    public InferenceBenchmark(Context context, int windows) {
+        this.context = context.getApplicationContext();
+        this.windows = windows;
+    }
+
+    /** Ejecuta todas las configuraciones y devuelve la de menor p50, o null si ninguna cargó. */
+    public Result run(List<ClassifierConfig> configs, ProgressListener listener) {
+        Result best = null;
+        for (ClassifierConfig config : configs) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            Result result;
+            try {
+                result = measure(config);
+            } catch (IOException | RuntimeException e) {
+                continue;
+            }
+            if (listener != null) {
+                listener.onResult(result);
+            }
+            if (best == null || result.p50Us < best.p50Us) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    private Result measure(ClassifierConfig config) throws IOException {
+        long[] latenciesUs = new long[windows];
+        long[] featureUs = new long[windows];
+        long peakNative = Debug.getNativeHeapAllocatedSize();
+        int sampleRate;
+        int windowSize;
+        long batchedNanos;
+        int batchedWindows;
+
+        try (ClassifierPool.Lease lease = ClassifierPool.acquire(context, config)) {
+            sampleRate = lease.getSampleRate();
+            windowSize = lease.getWindowSize();
+
+            int frames = lease.getFeatureFrames();
+            LogMelStream features = frames > 0 ? new LogMelStream(sampleRate, lease.getMelBins(), frames) : null;
+            // Salto por defecto del motor: media ventana
+            int hop = features != null ? Math.max(1, windowSize / 2) : windowSize;
+            float[] samples = new float[windowSize];
+            float[] input = features != null ? new float[frames * lease.getMelBins()] : samples;
+            float[] scores = new float[lease.getLabels().size()];
+            Random random = new Random(42);
+            if (features != null) {
+                // La primera ventana llena las tramas; después sólo entra el audio nuevo de cada salto
+                fillNoise(random, samples, windowSize);
+                features.push(samples, 0, windowSize);
+            }
+            for (int i = 0; i < windows; i++) {
+                fillNoise(random, samples, hop);
+                long start = System.nanoTime();
+                if (features != null) {
+                    features.push(samples, 0, hop);
+                    features.copyLatest(frames, input);
+                    featureUs[i] = (System.nanoTime() - start) / 1000;
+                }
+                lease.classify(input, scores);
+                latenciesUs[i] = (System.nanoTime() - start) / 1000;
+                peakNative = Math.max(peakNative, Debug.getNativeHeapAllocatedSize());
+            }
+
+            // Las mismas ventanas, agrupadas como las entrega el anillo cuando la inferencia se retrasa
+            int batch = DetectionPipeline.MAX_BATCH;
+            float[][] batchWindows = new float[batch][input.length];
+            float[][] batchScores = new float[batch][lease.getLabels().size()];
+            for (float[] batchWindow : batchWindows) {
+                if (features != null) {
+                    fillNoise(random, samples, hop);
+                    features.push(samples, 0, hop);
+                    features.copyLatest(frames, batchWindow);
+                } else {
+                    fillNoise(random, batchWindow, batchWindow.length);
+                }
+            }
+            // La primera llamada crea el intérprete de lotes; no cuenta
+            lease.classifyBatch(batchWindows, batch, batchScores);
+            batchedWindows = Math.max(batch, windows / batch * batch);
+            long start = System.nanoTime();
+            for (int i = 0; i < batchedWindows; i += batch) {
+                lease.classifyBatch(batchWindows, batch, batchScores);
+            }
+            batchedNanos = System.nanoTime() - start;
+            peakNative = Math.max(peakNative, Debug.getNativeHeapAllocatedSize());
+        } finally {
+            // Cada configuración carga su propio intérprete; no se acumulan en memoria
+            ClassifierPool.trimIdle();
+        }
+
+        Arrays.sort(latenciesUs);
+        Arrays.sort(featureUs);
+        long total = 0;
+        for (long latency : latenciesUs) {
+            total += latency;
+        }
+        double windowUs = windowSize * 1_000_000.0 / sampleRate;
+        return new Result(config,
+                percentile(latenciesUs, 0.50),
+                percentile(latenciesUs, 0.95),
+                percentile(latenciesUs, 0.99),
+                (total / (double) windows) / windowUs,
+                peakNative / 1024,
+                percentile(featureUs, 0.50),
+                total > 0 ? windows * 1_000_000.0 / total : 0,
+                batchedNanos > 0 ? batchedWindows * 1_000_000_000.0 / batchedNanos : 0);
+    }
+
+    private static void fillNoise(Random random, float[] dst, int length) {
+        for (int j = 0; j < length; j++) {
+            dst[j] = (random.nextFloat() * 2f - 1f) * 0.1f;
+        }
+    }
+
+    static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.ailert;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decisión de peligro sobre el vector completo de puntuaciones del modelo.
+ *
+ * Los índices de las etiquetas peligrosas se resuelven una sola vez al cargar el modelo
+ * en una máscara de bits y un umbral por etiqueta; cada ventana se evalúa después con
+ * aritmética sobre arreglos primitivos, sin comparar cadenas ni crear objetos. Una etiqueta
+ * peligrosa cuenta aunque no sea la primera del vector.
+ */
+public final class LabelDecision {
+
+    private final String[] labels;
+    private final long[] dangerMask;
+    private final float[] thresholds;
+    // Índice en el modelo de cada DangerLabels.LABELS[i], o -1 si el modelo no la tiene
+    private final int[] catalogIndex;
+
+    private int topIndex = -1;
+    private int dangerIndex = -1;
+
+    public LabelDecision(List<String> labels, float defaultThreshold) {
+        this.labels = labels.toArray(new String[0]);
+        this.dangerMask = new long[(this.labels.length + 63) >>> 6];
+        this.thresholds = new float[this.labels.length];
+        Arrays.fill(thresholds, defaultThreshold);
+        for (int i = 0; i < this.labels.length; i++) {
+            if (DangerLabels.isDangerous(this.labels[i])) {
+                dangerMask[i >>> 6] |= 1L << i;
+            }
+        }
+        catalogIndex = new int[DangerLabels.LABELS.length];
+        for (int c = 0; c < catalogIndex.length; c++) {
+            catalogIndex[c] = indexOf(DangerLabels.LABELS[c]);
+        }
+    }
+
+    /** Aplica las etiquetas activas y los umbrales de una configuración. Sin asignaciones. */
+    public void apply(DetectionConfig config) {
+        for (int c = 0; c < catalogIndex.length; c++) {
+            int i = catalogIndex[c];
+            if (i < 0) {
+                continue;
+            }
+            if (config.isEnabled(c)) {
+                dangerMask[i >>> 6] |= 1L << i;
+            } else {
+                dangerMask[i >>> 6] &= ~(1L << i);
+            }
+            thresholds[i] = config.getThreshold(c);
+        }
+    }
+
+    /** Umbral propio de una etiqueta; devuelve false si el modelo no la tiene. */
+    public boolean setThreshold(String label, float threshold) {
+        int index = indexOf(label);
+        if (index < 0) {
+            return false;
+        }
+        thresholds[index] = threshold;
+        return true;
+    }
+
+    public int indexOf(String label) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equals(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Evalúa una ventana. Deja en {@link #getTopIndex()} la etiqueta con mayor puntuación y
+     * devuelve el índice de la etiqueta peligrosa de mayor puntuación que supera su umbral, o -1.
+     */
+    public int evaluate(float[] scores) {
+        int top = -1;
+        float topScore = Float.NEGATIVE_INFINITY;
+        int danger = -1;
+        float dangerScore = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < labels.length; i++) {
+            float score = scores[i];
+            if (score > topScore) {
+                topScore = score;
+                top = i;
+            }
+            if ((dangerMask[i >>> 6] & (1L << i)) != 0 && score >= thresholds[i] && score > dangerScore) {
+                dangerScore = score;
+                danger = i;
+            }
+        }
+        topIndex = top;
+        dangerIndex = danger;
+        return danger;
+    }
+
+    public boolean isDangerous(int index) {
+        return index >= 0 && (dangerMask[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public int getTopIndex() {
+        return topIndex;
+    }
+
+    public int getDangerIndex() {
+        return dangerIndex;
+    }
+
+    public String label(int index) {
+        return labels[index];
+    }
+
+    public int size() {
+        return labels.length;
+    }
+}
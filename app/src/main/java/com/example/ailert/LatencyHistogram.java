@@ -0,0 +1,103 @@
+package com.example.ailert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias con cubetas fijas en escala 1-2-5 (de 10 µs a 100 s).
+ * Registrar es un incremento atómico sin bloqueos ni asignaciones, apto para la ruta caliente;
+ * los percentiles se devuelven como el límite superior de la cubeta, acotado por el máximo visto.
+ */
+public class LatencyHistogram {
+
+    static final long[] BOUNDS_US = {
+            10, 20, 50,
+            100, 200, 500,
+            1_000, 2_000, 5_000,
+            10_000, 20_000, 50_000,
+            100_000, 200_000, 500_000,
+            1_000_000, 2_000_000, 5_000_000,
+            10_000_000, 20_000_000, 50_000_000,
+            100_000_000
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_US.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumUs = new AtomicLong();
+    private final AtomicLong maxUs = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) {
+            return;
+        }
+        buckets.incrementAndGet(bucketFor(micros));
+        count.incrementAndGet();
+        sumUs.addAndGet(micros);
+        long max;
+        do {
+            max = maxUs.get();
+        } while (micros > max && !maxUs.compareAndSet(max, micros));
+    }
+
+    static int bucketFor(long micros) {
+        int low = 0;
+        int high = BOUNDS_US.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (micros <= BOUNDS_US[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxMicros() {
+        return maxUs.get();
+    }
+
+    public long getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : sumUs.get() / n;
+    }
+
+    /** Percentil aproximado en microsegundos; 0 si no hay muestras. */
+    public long percentileMicros(double quantile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        long max = maxUs.get();
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BOUNDS_US.length ? Math.min(BOUNDS_US[i], max) : max;
+            }
+        }
+        return max;
+    }
+
+    /** Copia de las cubetas; la última cuenta lo que supera el límite mayor. */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.ailert;
+
+/**
+ * Última ubicación válida conocida, compartida por todo el proceso.
+ *
+ * {@link LocationService} la mantiene caliente con cada actualización y el camino de
+ * alerta la lee en tiempo constante, sin esperar a un GPS frío.
+ */
+public final class LocationCache {
+
+    // Una lectura peor que esto sólo reemplaza a una ya caducada
+    private static final float MAX_USEFUL_ACCURACY_M = 500f;
+    private static final long REPLACE_AFTER_MS = 2 * 60_000;
+
+    private static final LocationCache INSTANCE = new LocationCache();
+
+    private volatile Fix lastFix;
+
+    LocationCache() {
+    }
+
+    public static LocationCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registra una lectura. Se descarta si es mucho menos precisa que la actual y ésta
+     * sigue siendo reciente.
+     */
+    public synchronized void update(double latitude, double longitude, float accuracyM, long elapsedRealtimeMs) {
+        Fix current = lastFix;
+        if (current != null && elapsedRealtimeMs < current.elapsedRealtimeMs) {
+            return;
+        }
+        if (current != null && accuracyM > MAX_USEFUL_ACCURACY_M
+                && accuracyM > current.accuracyM
+                && elapsedRealtimeMs - current.elapsedRealtimeMs < REPLACE_AFTER_MS) {
+            return;
+        }
+        lastFix = new Fix(latitude, longitude, accuracyM, elapsedRealtimeMs);
+    }
+
+    /** Última lectura, sea cual sea su edad; null si nunca hubo una. */
+    public Fix getLastFix() {
+        return lastFix;
+    }
+
+    /** Última lectura si no supera {@code maxAgeMs}; null si no hay o está caducada. */
+    public Fix getFreshFix(long nowElapsedRealtimeMs, long maxAgeMs) {
+        Fix fix = lastFix;
+        if (fix == null || fix.ageMs(nowElapsedRealtimeMs) > maxAgeMs) {
+            return null;
+        }
+        return fix;
+    }
+
+    public void clear() {
+        lastFix = null;
+    }
+
+    public static final class Fix {
+        public final double latitude;
+        public final double longitude;
+        public final float accuracyM;
+        public final long elapsedRealtimeMs;
+
+        Fix(double latitude, double longitude, float accuracyM, long elapsedRealtimeMs) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracyM = accuracyM;
+            this.elapsedRealtimeMs = elapsedRealtimeMs;
+        }
+
+        public long ageMs(long nowElapsedRealtimeMs) {
+            return nowElapsedRealtimeMs - elapsedRealtimeMs;
+        }
+
+        public String toMapsUrl() {
+            return "http://maps.google.com/maps?q=" + latitude + "," + longitude;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.ailert;
+
+/**
+ * Política adaptativa de muestreo de ubicación guiada por el estado de la detección.
+ *
+ * En reposo pide ubicaciones de bajo consumo (red, sin GPS) con un intervalo menor que la
+ * antigüedad máxima que acepta la alerta ({@link DetectionConfig#DEFAULT_LOCATION_MAX_AGE_MS}),
+ * para que al confirmar un incidente la caché casi siempre tenga una ubicación válida; en
+ * cuanto el audio reporta un puntaje sospechoso sube a alta precisión con intervalos
+ * cortos, y al pasar el peligro baja escalonadamente. No depende de Android: el proveedor real se inyecta
+ * y el reloj lo pasa el llamador, así que puede probarse con un proveedor falso.
+ */
+public class LocationSamplingPolicy {
+
+    public enum Tier {
+        // Con un fallo de lectura sigue habiendo una ubicación de menos de 2 minutos
+        IDLE(false, 60_000L, 30_000L),
+        COOLDOWN(false, 30_000L, 10_000L),
+        ALERT(true, 5_000L, 2_000L);
+
+        public final boolean highAccuracy;
+        public final long intervalMs;
+        public final long fastestIntervalMs;
+
+        Tier(boolean highAccuracy, long intervalMs, long fastestIntervalMs) {
+            this.highAccuracy = highAccuracy;
+            this.intervalMs = intervalMs;
+            this.fastestIntervalMs = fastestIntervalMs;
+        }
+    }
+
+    /** Abstracción del proveedor de ubicación; en producción envuelve al FusedLocationProviderClient. */
+    public interface Provider {
+        void requestUpdates(Tier tier);
+
+        void removeUpdates();
+    }
+
+    private final Provider provider;
+    private final float suspicionScore;
+    private final long alertHoldMs;
+    private final long cooldownHoldMs;
+
+    private Tier tier;
+    private long tierSinceMs;
+    private long lastSuspicionMs;
+    private long highAccuracyMs;
+    private long lowPowerMs;
+    private int escalations;
+
+    public LocationSamplingPolicy(Provider provider) {
+        this(provider, 0.4f, 2 * 60_000L, 5 * 60_000L);
+    }
+
+    public LocationSamplingPolicy(Provider provider, float suspicionScore, long alertHoldMs, long cooldownHoldMs) {
+        this.provider = provider;
+        this.suspicionScore = suspicionScore;
+        this.alertHoldMs = alertHoldMs;
+        this.cooldownHoldMs = cooldownHoldMs;
+    }
+
+    public synchronized void start(long nowMs) {
+        lastSuspicionMs = Long.MIN_VALUE / 2;
+        moveTo(Tier.IDLE, nowMs);
+    }
+
+    public synchronized void stop(long nowMs) {
+        if (tier == null) {
+            return;
+        }
+        account(nowMs);
+        tier = null;
+        provider.removeUpdates();
+    }
+
+    /** Puntaje de un sonido peligroso reportado por la detección. */
+    public synchronized void onSuspicion(float score, long nowMs) {
+        if (tier == null || score < suspicionScore) {
+            return;
+        }
+        lastSuspicionMs = nowMs;
+        if (tier != Tier.ALERT) {
+            escalations++;
+            moveTo(Tier.ALERT, nowMs);
+        }
+    }
+
+    /**
+     * Aplica el decaimiento según el tiempo transcurrido.
+     *
+     * @return milisegundos hasta el próximo cambio posible, o -1 si no hay ninguno pendiente
+     */
+    public synchronized long tick(long nowMs) {
+        if (tier == null) {
+            return -1;
+        }
+        long sinceSuspicion = nowMs - lastSuspicionMs;
+        if (tier == Tier.ALERT) {
+            if (sinceSuspicion < alertHoldMs) {
+                return alertHoldMs - sinceSuspicion;
+            }
+            moveTo(Tier.COOLDOWN, nowMs);
+        }
+        if (tier == Tier.COOLDOWN) {
+            long cooldownEnd = alertHoldMs + cooldownHoldMs;
+            if (sinceSuspicion < cooldownEnd) {
+                return cooldownEnd - sinceSuspicion;
+            }
+            moveTo(Tier.IDLE, nowMs);
+        }
+        return -1;
+    }
+
+    private void moveTo(Tier next, long nowMs) {
+        if (tier != null) {
+            account(nowMs);
+        }
+        tier = next;
+        tierSinceMs = nowMs;
+        provider.requestUpdates(next);
+    }
+
+    private void account(long nowMs) {
+        long elapsed = nowMs - tierSinceMs;
+        if (tier.highAccuracy) {
+            highAccuracyMs += elapsed;
+        } else {
+            lowPowerMs += elapsed;
+        }
+        tierSinceMs = nowMs;
+    }
+
+    public synchronized Tier getTier() {
+        return tier;
+    }
+
+    /** Tiempo total con el GPS en alta precisión, incluido el tramo en curso. */
+    public synchronized long getRadioOnMs(long nowMs) {
+        return highAccuracyMs + (tier != null && tier.highAccuracy ? nowMs - tierSinceMs : 0);
+    }
+
+    public synchronized long getLowPowerMs(long nowMs) {
+        return lowPowerMs + (tier != null && !tier.highAccuracy ? nowMs - tierSinceMs : 0);
+    }
+
+    public synchronized int getEscalations() {
+        return escalations;
+    }
+}
@@ -9,7 +9,11 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
@@ -20,11 +24,34 @@ import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class LocationService extends Service {
 
     private static final String CHANNEL_ID = "ailert_channel";
+
+    // Instancia en ejecución, para que la detección pueda pedir más precisión
+    private static volatile LocationService running;
+
     private FusedLocationProviderClient fusedLocationClient;
     private LocationCallback locationCallback;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private LocationSamplingPolicy samplingPolicy;
+    private final Runnable tickTask = this::tickPolicy;
+    // La detección sólo publica el puntaje; una única tarea reutilizada lo consume en el hilo principal
+    private final AtomicInteger pendingSuspicionBits = new AtomicInteger(Float.floatToIntBits(0f));
+    private final Runnable suspicionTask = () -> onSuspicion(Float.intBitsToFloat(pendingSuspicionBits.getAndSet(Float.floatToIntBits(0f))));
+
+    /** Llamado por la detección cuando un sonido peligroso supera el umbral de sospecha. */
+    public static void reportSuspicion(float score) {
+        LocationService service = running;
+        if (service != null) {
+            // Conserva el mayor puntaje pendiente; los puntajes son positivos, así que el orden de bits coincide
+            service.pendingSuspicionBits.accumulateAndGet(Float.floatToIntBits(score), Math::max);
+            service.handler.removeCallbacks(service.suspicionTask);
+            service.handler.post(service.suspicionTask);
+        }
+    }
 
     @Override
     public void onCreate() {
@@ -35,11 +62,22 @@ public class LocationService extends Service {
             @Override
             public void onLocationResult(LocationResult locationResult) {
                 for (Location location : locationResult.getLocations()) {
-                    // Aquí puedes enviar la ubicación a tu servidor o guardarla
-                    System.out.println("Ubicación: " + location.getLatitude() + ", " + location.getLongitude());
+                    cacheLocation(location);
                 }
             }
         };
+
+        samplingPolicy = new LocationSamplingPolicy(new LocationSamplingPolicy.Provider() {
+            @Override
+            public void requestUpdates(LocationSamplingPolicy.Tier tier) {
+                requestLocationUpdates(tier);
+            }
+
+            @Override
+            public void removeUpdates() {
+                fusedLocationClient.removeLocationUpdates(locationCallback);
+            }
+        });
     }
 
     @Override
@@ -52,22 +90,65 @@ public class LocationService extends Service {
                 .setOngoing(true)
                 .build();
 
-        startForeground(1, notification);
+        startForeground(AIlertService.NOTIFICATION_ID_LOCATION, notification);
         startLocationUpdates();
         return START_STICKY;
     }
 
     private void startLocationUpdates() {
-        LocationRequest locationRequest = LocationRequest.create()
-                .setInterval(5000) // cada 5 segundos
-                .setFastestInterval(2000)
-                .setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
-
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
             stopSelf();
             return;
         }
-        fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, null);
+        // Se siembra la caché con la última ubicación conocida mientras llega la primera lectura
+        fusedLocationClient.getLastLocation().addOnSuccessListener(location -> {
+            if (location != null) {
+                cacheLocation(location);
+            }
+        });
+        if (running != this) {
+            running = this;
+            samplingPolicy.start(SystemClock.elapsedRealtime());
+        }
+    }
+
+    private void requestLocationUpdates(LocationSamplingPolicy.Tier tier) {
+        // En reposo basta la red (bajo consumo); el GPS sólo se enciende ante una sospecha
+        LocationRequest locationRequest = LocationRequest.create()
+                .setInterval(tier.intervalMs)
+                .setFastestInterval(tier.fastestIntervalMs)
+                .setPriority(tier.highAccuracy
+                        ? LocationRequest.PRIORITY_HIGH_ACCURACY
+                        : LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+        try {
+            fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, Looper.getMainLooper());
+            Log.d("AIlert", "Muestreo de ubicación: " + tier);
+        } catch (SecurityException e) {
+            Log.e("AIlert", "Sin permiso de ubicación", e);
+        }
+    }
+
+    private void onSuspicion(float score) {
+        samplingPolicy.onSuspicion(score, SystemClock.elapsedRealtime());
+        tickPolicy();
+    }
+
+    private void tickPolicy() {
+        handler.removeCallbacks(tickTask);
+        long delay = samplingPolicy.tick(SystemClock.elapsedRealtime());
+        if (delay > 0) {
+            handler.postDelayed(tickTask, delay);
+        }
+    }
+
+    private void cacheLocation(Location location) {
+        long elapsedMs = location.getElapsedRealtimeNanos() / 1_000_000;
+        if (elapsedMs == 0) {
+            elapsedMs = SystemClock.elapsedRealtime();
+        }
+        float accuracy = location.hasAccuracy() ? location.getAccuracy() : Float.MAX_VALUE;
+        LocationCache.getInstance().update(location.getLatitude(), location.getLongitude(), accuracy, elapsedMs);
+        LocationTrail.getInstance().add(location.getLatitude(), location.getLongitude(), accuracy, elapsedMs);
     }
 
     private void createNotificationChannel() {
@@ -85,7 +166,15 @@ public class LocationService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        fusedLocationClient.removeLocationUpdates(locationCallback);
+        if (running == this) {
+            running = null;
+        }
+        handler.removeCallbacksAndMessages(null);
+        long now = SystemClock.elapsedRealtime();
+        samplingPolicy.stop(now);
+        Log.i("AIlert", "GPS en alta precisión: " + samplingPolicy.getRadioOnMs(now) / 1000
+                + " s, bajo consumo: " + samplingPolicy.getLowPowerMs(now) / 1000
+                + " s, escaladas: " + samplingPolicy.getEscalations());
     }
 
     @Nullable
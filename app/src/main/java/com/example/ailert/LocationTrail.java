@@ -0,0 +1,136 @@
+package com.example.ailert;
+
+import java.util.Locale;
+
+/**
+ * Recorrido reciente: las últimas N ubicaciones en arreglos primitivos paralelos usados
+ * como anillo. No se retiene ningún objeto por lectura, así que la memoria es constante
+ * sin importar cuánto tiempo lleve corriendo el servicio.
+ */
+public class LocationTrail {
+
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+    private static final String[] COMPASS = {"N", "NE", "E", "SE", "S", "SO", "O", "NO"};
+
+    private static final LocationTrail INSTANCE = new LocationTrail(240);
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final float[] accuracies;
+    private final long[] timestamps;
+    private int next;
+    private int size;
+
+    public LocationTrail(int capacity) {
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        accuracies = new float[capacity];
+        timestamps = new long[capacity];
+    }
+
+    public static LocationTrail getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void add(double latitude, double longitude, float accuracyM, long timestampMs) {
+        if (size > 0 && timestampMs <= timestamps[index(size - 1)]) {
+            return;
+        }
+        latitudes[next] = latitude;
+        longitudes[next] = longitude;
+        accuracies[next] = accuracyM;
+        timestamps[next] = timestampMs;
+        next = (next + 1) % latitudes.length;
+        if (size < latitudes.length) {
+            size++;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    /** Índice físico de la i-ésima lectura, de la más antigua (0) a la más reciente. */
+    private int index(int i) {
+        int oldest = (next - size + latitudes.length) % latitudes.length;
+        return (oldest + i) % latitudes.length;
+    }
+
+    /** Distancia recorrida en metros sumando tramos entre lecturas desde {@code sinceMs}. */
+    public synchronized double distanceSince(long sinceMs) {
+        double total = 0;
+        int previous = -1;
+        for (int i = 0; i < size; i++) {
+            int current = index(i);
+            if (timestamps[current] < sinceMs) {
+                continue;
+            }
+            if (previous >= 0) {
+                total += distance(latitudes[previous], longitudes[previous], latitudes[current], longitudes[current]);
+            }
+            previous = current;
+        }
+        return total;
+    }
+
+    /**
+     * Resumen corto del movimiento en la ventana indicada, para adjuntar a una alerta.
+     *
+     * @return null si no hay al menos dos lecturas en la ventana
+     */
+    public synchronized String describeMovement(long nowMs, long windowMs) {
+        long since = nowMs - windowMs;
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < size; i++) {
+            int current = index(i);
+            if (timestamps[current] >= since) {
+                if (first < 0) {
+                    first = current;
+                }
+                last = current;
+            }
+        }
+        if (first < 0 || first == last) {
+            return null;
+        }
+
+        double meters = distanceSince(since);
+        double seconds = (timestamps[last] - timestamps[first]) / 1000.0;
+        double net = distance(latitudes[first], longitudes[first], latitudes[last], longitudes[last]);
+        // Con un desplazamiento neto menor al error de medición el rumbo no significa nada
+        float noise = Math.max(accuracies[first], accuracies[last]);
+        String heading = net > noise
+                ? compass(bearing(latitudes[first], longitudes[first], latitudes[last], longitudes[last]))
+                : "sin rumbo claro";
+        return String.format(Locale.US, "Movimiento últimos %d min: %.0f m, %s, %.1f m/s",
+                windowMs / 60_000, meters, heading, seconds > 0 ? meters / seconds : 0);
+    }
+
+    static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    static double bearing(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double y = Math.sin(dLon) * Math.cos(phi2);
+        double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLon);
+        return (Math.toDegrees(Math.atan2(y, x)) + 360.0) % 360.0;
+    }
+
+    static String compass(double bearingDegrees) {
+        return COMPASS[(int) Math.round(bearingDegrees / 45.0) % COMPASS.length];
+    }
+}
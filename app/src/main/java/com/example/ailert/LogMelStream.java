@@ -0,0 +1,228 @@
+package com.example.ailert;
+
+/**
+ * Extracción incremental de características log-mel. Cada trama (25 ms con salto de 10 ms,
+ * como YAMNet) se calcula una sola vez al llegar su audio y se guarda en un anillo de
+ * tramas; la entrada de un modelo de características se arma copiando las últimas
+ * {@code n} tramas. Con ventanas solapadas, procesar una ventana cuesta lo proporcional
+ * a su salto y no a su longitud.
+ *
+ * Todo se reserva en el constructor: {@link #push} y {@link #copyLatest} no crean objetos.
+ * Un único hilo (el de inferencia) debe usar cada instancia.
+ */
+public class LogMelStream {
+
+    public static final int DEFAULT_MEL_BINS = 64;
+    private static final float MIN_HZ = 125f;
+    private static final float MAX_HZ = 7500f;
+    private static final float LOG_OFFSET = 0.001f;
+
+    private final int frameLength;
+    private final int frameHop;
+    private final int fftSize;
+    private final int melBins;
+    private final int capacity;
+
+    // Historial circular de las últimas frameLength muestras
+    private final float[] history;
+    private int historyPos;
+    private long samplesSeen;
+    private int sinceLastFrame;
+
+    private final float[] hann;
+    private final float[] cos;
+    private final float[] sin;
+    private final int[] bitReverse;
+    private final float[] re;
+    private final float[] im;
+    private final float[] magnitude;
+
+    // Filtros triangulares dispersos: para cada banda, primer bin de FFT y sus pesos
+    private final int[] filterStart;
+    private final float[][] filterWeights;
+
+    private final float[] frames;
+    private long framesWritten;
+
+    public LogMelStream(int sampleRate, int melBins, int capacityFrames) {
+        this.frameLength = sampleRate * 25 / 1000;
+        this.frameHop = sampleRate / 100;
+        this.fftSize = Integer.highestOneBit(frameLength - 1) << 1;
+        this.melBins = melBins;
+        this.capacity = capacityFrames;
+        this.history = new float[frameLength];
+
+        hann = new float[frameLength];
+        for (int i = 0; i < frameLength; i++) {
+            hann[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / frameLength));
+        }
+        cos = new float[fftSize / 2];
+        sin = new float[fftSize / 2];
+        for (int i = 0; i < fftSize / 2; i++) {
+            cos[i] = (float) Math.cos(-2 * Math.PI * i / fftSize);
+            sin[i] = (float) Math.sin(-2 * Math.PI * i / fftSize);
+        }
+        int bits = Integer.numberOfTrailingZeros(fftSize);
+        bitReverse = new int[fftSize];
+        for (int i = 0; i < fftSize; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+        re = new float[fftSize];
+        im = new float[fftSize];
+        magnitude = new float[fftSize / 2 + 1];
+
+        filterStart = new int[melBins];
+        filterWeights = new float[melBins][];
+        buildFilters(sampleRate);
+
+        frames = new float[capacityFrames * melBins];
+    }
+
+    private void buildFilters(int sampleRate) {
+        double melMin = hzToMel(MIN_HZ);
+        double melMax = hzToMel(Math.min(MAX_HZ, sampleRate / 2f));
+        double[] edges = new double[melBins + 2];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = melToHz(melMin + (melMax - melMin) * i / (melBins + 1));
+        }
+        double binHz = (double) sampleRate / fftSize;
+        for (int m = 0; m < melBins; m++) {
+            double lower = edges[m];
+            double center = edges[m + 1];
+            double upper = edges[m + 2];
+            int first = (int) Math.ceil(lower / binHz);
+            int last = Math.min((int) Math.floor(upper / binHz), fftSize / 2);
+            first = Math.min(first, last);
+            float[] weights = new float[last - first + 1];
+            for (int bin = first; bin <= last; bin++) {
+                double hz = bin * binHz;
+                double weight = hz <= center ? (hz - lower) / (center - lower) : (upper - hz) / (upper - center);
+                weights[bin - first] = (float) Math.max(0, weight);
+            }
+            filterStart[m] = first;
+            filterWeights[m] = weights;
+        }
+    }
+
+    private static double hzToMel(double hz) {
+        return 1127.0 * Math.log(1 + hz / 700.0);
+    }
+
+    private static double melToHz(double mel) {
+        return 700.0 * (Math.exp(mel / 1127.0) - 1);
+    }
+
+    public int getMelBins() {
+        return melBins;
+    }
+
+    /** Muestras entre tramas consecutivas. */
+    public int getFrameHop() {
+        return frameHop;
+    }
+
+    /** Muestras de audio que cubren {@code frames} tramas consecutivas. */
+    public int samplesFor(int frames) {
+        return (frames - 1) * frameHop + frameLength;
+    }
+
+    /** Añade audio nuevo y calcula las tramas que se completen. */
+    public void push(float[] samples, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            history[historyPos] = samples[offset + i];
+            historyPos = historyPos + 1 == frameLength ? 0 : historyPos + 1;
+            samplesSeen++;
+            if (++sinceLastFrame >= frameHop && samplesSeen >= frameLength) {
+                sinceLastFrame = 0;
+                computeFrame();
+            }
+        }
+    }
+
+    private void computeFrame() {
+        // historyPos apunta a la muestra más antigua
+        for (int i = 0; i < fftSize; i++) {
+            re[i] = 0f;
+            im[i] = 0f;
+        }
+        for (int i = 0; i < frameLength; i++) {
+            int source = historyPos + i;
+            if (source >= frameLength) {
+                source -= frameLength;
+            }
+            re[bitReverse[i]] = history[source] * hann[i];
+        }
+        fft();
+        for (int bin = 0; bin <= fftSize / 2; bin++) {
+            magnitude[bin] = (float) Math.sqrt(re[bin] * re[bin] + im[bin] * im[bin]);
+        }
+
+        int base = (int) (framesWritten % capacity) * melBins;
+        for (int m = 0; m < melBins; m++) {
+            float[] weights = filterWeights[m];
+            int first = filterStart[m];
+            float energy = 0f;
+            for (int k = 0; k < weights.length; k++) {
+                energy += weights[k] * magnitude[first + k];
+            }
+            frames[base + m] = (float) Math.log(energy + LOG_OFFSET);
+        }
+        framesWritten++;
+    }
+
+    /** FFT compleja radix-2 in situ; la entrada ya está en orden de bits invertidos. */
+    private void fft() {
+        for (int size = 2; size <= fftSize; size <<= 1) {
+            int half = size >> 1;
+            int step = fftSize / size;
+            for (int start = 0; start < fftSize; start += size) {
+                for (int k = 0; k < half; k++) {
+                    float wr = cos[k * step];
+                    float wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    float tr = re[b] * wr - im[b] * wi;
+                    float ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copia las últimas {@code count} tramas, de la más antigua a la más reciente, en
+     * {@code dst} ({@code count * melBins} valores). Si aún no hay tantas, el principio se
+     * rellena con el valor de silencio.
+     *
+     * @return tramas reales copiadas
+     */
+    public int copyLatest(int count, float[] dst) {
+        int available = (int) Math.min(Math.min(count, framesWritten), capacity);
+        int missing = count - available;
+        float silence = (float) Math.log(LOG_OFFSET);
+        for (int i = 0; i < missing * melBins; i++) {
+            dst[i] = silence;
+        }
+        long firstFrame = framesWritten - available;
+        for (int f = 0; f < available; f++) {
+            int base = (int) ((firstFrame + f) % capacity) * melBins;
+            System.arraycopy(frames, base, dst, (missing + f) * melBins, melBins);
+        }
+        return available;
+    }
+
+    public long getFramesComputed() {
+        return framesWritten;
+    }
+
+    /** Olvida el audio anterior, p. ej. tras un salto en la captura. */
+    public void reset() {
+        historyPos = 0;
+        samplesSeen = 0;
+        sinceLastFrame = 0;
+        framesWritten = 0;
+    }
+}
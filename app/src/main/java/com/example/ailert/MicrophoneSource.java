@@ -0,0 +1,70 @@
+package com.example.ailert;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+
+import java.io.IOException;
+
+/**
+ * {@link AudioSource} sobre un {@link AudioRecord}. En formato float (el que crea el
+ * clasificador) lee directo al destino; en PCM de 16 bits convierte desde un buffer reutilizado.
+ */
+public class MicrophoneSource implements AudioSource {
+
+    private final AudioRecord record;
+    private short[] pcm;
+
+    public MicrophoneSource(AudioRecord record) {
+        this.record = record;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return record.getSampleRate();
+    }
+
+    @Override
+    public boolean isLive() {
+        return true;
+    }
+
+    @Override
+    public void start() throws IOException {
+        try {
+            record.startRecording();
+        } catch (IllegalStateException e) {
+            throw new IOException("No se pudo iniciar la grabación", e);
+        }
+    }
+
+    @Override
+    public int read(float[] dst, int offset, int length) throws IOException {
+        int read;
+        if (record.getAudioFormat() == AudioFormat.ENCODING_PCM_16BIT) {
+            if (pcm == null || pcm.length < length) {
+                pcm = new short[length];
+            }
+            read = record.read(pcm, 0, length, AudioRecord.READ_BLOCKING);
+            if (read > 0) {
+                PcmConverter.toFloat(pcm, 0, dst, offset, read);
+            }
+        } else {
+            read = record.read(dst, offset, length, AudioRecord.READ_BLOCKING);
+        }
+        if (read < 0) {
+            throw new IOException("Error leyendo del micrófono: " + read);
+        }
+        return read;
+    }
+
+    /** Desbloquea una lectura pendiente en otro hilo. */
+    @Override
+    public void stop() {
+        record.stop();
+    }
+
+    @Override
+    public void close() {
+        record.release();
+    }
+}
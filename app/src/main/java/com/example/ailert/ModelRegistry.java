@@ -0,0 +1,184 @@
+package com.example.ailert;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.tensorflow.lite.support.common.FileUtil;
+import org.tensorflow.lite.support.metadata.MetadataExtractor;
+import org.tensorflow.lite.support.metadata.schema.AudioProperties;
+import org.tensorflow.lite.support.metadata.schema.Content;
+import org.tensorflow.lite.support.metadata.schema.ContentProperties;
+import org.tensorflow.lite.support.metadata.schema.TensorMetadata;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Registro de variantes del clasificador de sonidos (float32, float16 e int8).
+ *
+ * En el primer arranque se elige una variante según los núcleos del dispositivo y el
+ * tiempo medido de una micro-inferencia, y la elección se guarda en preferencias hasta
+ * que cambie el sistema. Cada variante se valida contra las etiquetas que espera la
+ * lógica de peligro antes de usarse.
+ */
+public final class ModelRegistry {
+
+    private static final String TAG = "AIlert";
+
+    // Una ventana de ~1 s procesada en más de esto indica un dispositivo de gama baja
+    private static final long SLOW_INFERENCE_MS = 40;
+    private static final long FAST_INFERENCE_MS = 15;
+    private static final int PROBE_RUNS = 5;
+
+    public enum Variant {
+        FLOAT32(ClassifierConfig.DEFAULT_MODEL),
+        FLOAT16("sound_classifier_wd_fp16_metadata.tflite"),
+        INT8("sound_classifier_wd_int8_metadata.tflite");
+
+        public final String assetPath;
+
+        Variant(String assetPath) {
+            this.assetPath = assetPath;
+        }
+    }
+
+    private ModelRegistry() {
+    }
+
+    /** Devuelve la variante guardada o, si no hay o cambió el sistema, la elige y la guarda. */
+    public static Variant ensureSelected(Context context, SharedPreferences preferences) {
+        String savedName = preferences.getString("modelo_variante", null);
+        String savedFingerprint = preferences.getString("modelo_huella", null);
+        if (savedName != null && Build.FINGERPRINT.equals(savedFingerprint)) {
+            try {
+                Variant saved = Variant.valueOf(savedName);
+                if (isCompatible(context, saved.assetPath)) {
+                    return saved;
+                }
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Variante guardada desconocida: " + savedName);
+            }
+        }
+
+        Variant chosen = select(context);
+        preferences.edit()
+                .putString("modelo_variante", chosen.name())
+                .putString("modelo_archivo", chosen.assetPath)
+                .putString("modelo_huella", Build.FINGERPRINT)
+                .apply();
+        return chosen;
+    }
+
+    private static Variant select(Context context) {
+        List<Variant> valid = new ArrayList<>();
+        for (Variant variant : Variant.values()) {
+            if (isCompatible(context, variant.assetPath)) {
+                valid.add(variant);
+            }
+        }
+        if (valid.isEmpty()) {
+            Log.w(TAG, "Ninguna variante del modelo pasó la validación; se usa la predeterminada");
+            return Variant.FLOAT32;
+        }
+        if (valid.size() == 1) {
+            return valid.get(0);
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        long probeMs = probeInferenceMs(context, valid.get(0).assetPath);
+        Log.i(TAG, "Sondeo del dispositivo: " + cores + " núcleos, micro-inferencia " + probeMs + " ms");
+
+        Variant preferred;
+        if (probeMs > SLOW_INFERENCE_MS || cores <= 4) {
+            preferred = Variant.INT8;
+        } else if (probeMs > FAST_INFERENCE_MS) {
+            preferred = Variant.FLOAT16;
+        } else {
+            preferred = Variant.FLOAT32;
+        }
+        // Si la preferida no está disponible, se toma la más cercana en coste
+        for (int i = preferred.ordinal(); i >= 0; i--) {
+            if (valid.contains(Variant.values()[i])) {
+                return Variant.values()[i];
+            }
+        }
+        return valid.get(0);
+    }
+
+    private static long probeInferenceMs(Context context, String modelPath) {
+        ClassifierConfig config = ClassifierConfig.builder().setModelPath(modelPath).build();
+        try (ClassifierPool.Lease lease = ClassifierPool.acquire(context, config)) {
+            float[] window = new float[lease.getWindowSize()];
+            float[] scores = new float[lease.getLabels().size()];
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < PROBE_RUNS; i++) {
+                lease.classify(window, scores);
+            }
+            return (SystemClock.elapsedRealtimeNanos() - start) / PROBE_RUNS / 1_000_000;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "No se pudo sondear " + modelPath, e);
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /** true si el modelo existe y su cabeza principal contiene todas las etiquetas peligrosas. */
+    static boolean isCompatible(Context context, String modelPath) {
+        List<String> labels;
+        try {
+            labels = readLabels(context, modelPath);
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+        Set<String> available = new HashSet<>(labels);
+        for (String required : DangerLabels.LABELS) {
+            if (!available.contains(required)) {
+                Log.w(TAG, modelPath + " no contiene la etiqueta " + required);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Etiquetas de la primera salida del modelo, en el orden de sus índices. */
+    static List<String> readLabels(Context context, String modelPath) throws IOException {
+        return readLabels(FileUtil.loadMappedFile(context, modelPath), modelPath);
+    }
+
+    static List<String> readLabels(MappedByteBuffer model, String modelPath) throws IOException {
+        MetadataExtractor extractor = new MetadataExtractor(model);
+        if (!extractor.hasMetadata() || extractor.getOutputTensorCount() == 0) {
+            throw new IOException("El modelo " + modelPath + " no tiene metadatos de etiquetas");
+        }
+        TensorMetadata output = extractor.getOutputTensorMetadata(0);
+        if (output.associatedFilesLength() == 0) {
+            throw new IOException("El modelo " + modelPath + " no tiene archivo de etiquetas");
+        }
+        String labelFile = output.associatedFiles(0).name();
+        return FileUtil.loadLabels(extractor.getAssociatedFile(labelFile));
+    }
+
+    /** Frecuencia de muestreo declarada en los metadatos de la entrada, o {@code fallback}. */
+    static int readSampleRate(MappedByteBuffer model, int fallback) {
+        try {
+            MetadataExtractor extractor = new MetadataExtractor(model);
+            if (!extractor.hasMetadata() || extractor.getInputTensorCount() == 0) {
+                return fallback;
+            }
+            Content content = extractor.getInputTensorMetadata(0).content();
+            if (content == null || content.contentPropertiesType() != ContentProperties.AudioProperties) {
+                return fallback;
+            }
+            AudioProperties audio = (AudioProperties) content.contentProperties(new AudioProperties());
+            return audio != null && audio.sampleRate() > 0 ? audio.sampleRate() : fallback;
+        } catch (RuntimeException e) {
+            return fallback;
+        }
+    }
+}
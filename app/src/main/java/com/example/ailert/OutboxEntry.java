@@ -0,0 +1,72 @@
+package com.example.ailert;
+
+import java.util.concurrent.Future;
+
+/**
+ * Un SMS de {@link AlertOutbox} para un único destinatario: los datos que se guardan en
+ * disco y el estado del intento en curso. Cada intento tiene un número propio; los acuses
+ * de un intento anterior (que llegan tarde o tras un reintento) se ignoran. Sin
+ * dependencias de Android para poder probarse.
+ */
+final class OutboxEntry {
+
+    final long id;
+    final String phoneNumber;
+    final String message;
+    // Sólo en memoria, para métricas
+    final long enqueuedAtNanos = System.nanoTime();
+    long detectedAtNanos;
+    volatile Future<?> timeout;
+
+    // Protegidos con el monitor de la entrada
+    private int attempts;
+    private int partsPending;
+    private int partsUndelivered;
+
+    OutboxEntry(long id, String phoneNumber, String message, int attempts) {
+        this.id = id;
+        this.phoneNumber = phoneNumber;
+        this.message = message;
+        this.attempts = attempts;
+    }
+
+    synchronized int getAttempts() {
+        return attempts;
+    }
+
+    /** Empieza un intento de {@code parts} partes y devuelve su número. */
+    synchronized int beginAttempt(int parts) {
+        partsPending = parts;
+        partsUndelivered = parts;
+        return ++attempts;
+    }
+
+    /** Da por perdido el intento; false si ya terminó o {@code attempt} es uno anterior. */
+    synchronized boolean abandon(int attempt) {
+        if (attempt != attempts || partsPending == 0) {
+            return false;
+        }
+        partsPending = 0;
+        return true;
+    }
+
+    /** Una parte del intento se envió; true cuando era la última pendiente. */
+    synchronized boolean partSent(int attempt) {
+        return attempt == attempts && partsPending > 0 && --partsPending == 0;
+    }
+
+    /** Una parte del intento se entregó; true cuando era la última por entregar. */
+    synchronized boolean partDelivered(int attempt) {
+        return attempt == attempts && partsUndelivered > 0 && --partsUndelivered == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof OutboxEntry && ((OutboxEntry) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+}
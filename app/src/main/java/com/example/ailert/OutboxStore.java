@@ -0,0 +1,81 @@
+package com.example.ailert;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Formato en disco de {@link AlertOutbox}: un archivo {@code <id>.msg} por mensaje con el
+ * número, el texto y los intentos ya hechos. Se escribe en un temporal y se renombra, así
+ * que un corte a mitad deja la versión anterior. Sin dependencias de Android.
+ */
+final class OutboxStore {
+
+    private static final String SUFFIX = ".msg";
+
+    private final File directory;
+
+    OutboxStore(File directory) {
+        this.directory = directory;
+    }
+
+    boolean ensureDirectory() {
+        return directory.isDirectory() || directory.mkdirs();
+    }
+
+    void write(OutboxEntry entry) throws IOException {
+        File tmp = new File(directory, entry.id + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeLong(entry.id);
+            out.writeUTF(entry.phoneNumber);
+            out.writeUTF(entry.message);
+            out.writeInt(entry.getAttempts());
+        }
+        if (!tmp.renameTo(file(entry.id))) {
+            throw new IOException("No se pudo confirmar " + tmp.getName());
+        }
+    }
+
+    /** false si el archivo existía y no se pudo borrar. */
+    boolean delete(long id) {
+        File file = file(id);
+        return !file.exists() || file.delete();
+    }
+
+    /**
+     * Mensajes guardados, en orden de id (de encolado). Los ilegibles se borran y sus
+     * nombres se añaden a {@code discarded}.
+     */
+    List<OutboxEntry> readAll(List<String> discarded) {
+        List<OutboxEntry> entries = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return entries;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                entries.add(new OutboxEntry(in.readLong(), in.readUTF(), in.readUTF(), in.readInt()));
+            } catch (IOException e) {
+                discarded.add(file.getName());
+                file.delete();
+            }
+        }
+        return entries;
+    }
+
+    int count() {
+        String[] names = directory.list((dir, name) -> name.endsWith(SUFFIX));
+        return names == null ? 0 : names.length;
+    }
+
+    private File file(long id) {
+        return new File(directory, id + SUFFIX);
+    }
+}
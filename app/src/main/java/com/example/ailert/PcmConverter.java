@@ -0,0 +1,38 @@
+package com.example.ailert;
+
+/**
+ * Conversión de PCM de 16 bits a muestras float en [-1, 1) sobre buffers reutilizados.
+ */
+public final class PcmConverter {
+
+    private static final float SCALE = 1f / 32768f;
+
+    private PcmConverter() {
+    }
+
+    public static void toFloat(short[] src, int srcOffset, float[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = src[srcOffset + i] * SCALE;
+        }
+    }
+
+    /** PCM de 16 bits little-endian (como en WAV) a float; {@code sampleCount} muestras. */
+    public static void toFloat(byte[] src, int srcOffset, float[] dst, int dstOffset, int sampleCount) {
+        for (int i = 0; i < sampleCount; i++) {
+            int b = srcOffset + 2 * i;
+            short sample = (short) ((src[b] & 0xff) | (src[b + 1] << 8));
+            dst[dstOffset + i] = sample * SCALE;
+        }
+    }
+
+    public static short toPcm16(float sample) {
+        int value = Math.round(sample * 32768f);
+        if (value > Short.MAX_VALUE) {
+            return Short.MAX_VALUE;
+        }
+        if (value < Short.MIN_VALUE) {
+            return Short.MIN_VALUE;
+        }
+        return (short) value;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.ailert;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas por etapa de todo el proceso: un {@link LatencyHistogram} por etapa más
+ * contadores atómicos. Se consultan desde la interfaz con {@link #summary()} y se
+ * exportan a CSV bajo demanda con {@link #exportTo(File)}.
+ */
+public final class PipelineMetrics {
+
+    public enum Stage {
+        /** Desde la última muestra escrita en el anillo hasta que el consumidor toma la ventana. */
+        CAPTURE("captura"),
+        LOAD("carga"),
+        /** Primera etapa de la cascada (detector DSP de candidatos). */
+        SCREEN("cribado"),
+        CLASSIFY("clasificación"),
+        DECISION("decisión"),
+        /** Desde el incidente confirmado hasta tener el mensaje con (o sin) ubicación. */
+        LOCATION("ubicación"),
+        /** Desde que el mensaje entra en la bandeja de salida hasta la confirmación de envío. */
+        SMS("envío SMS"),
+        DETECTION_TO_SMS("detección→SMS"),
+        /** Desde que se pide arrancar el servicio (p. ej. al encender el teléfono) hasta que el micrófono escucha. */
+        STARTUP("arranque");
+
+        public final String displayName;
+
+        Stage(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    private static final PipelineMetrics instance = new PipelineMetrics();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLong incidents = new AtomicLong();
+    private final AtomicLong smsSent = new AtomicLong();
+    private final AtomicLong smsFailed = new AtomicLong();
+    private final AtomicLong windowsScreened = new AtomicLong();
+    private final AtomicLong windowsStageTwo = new AtomicLong();
+    private final long createdAtMs = System.currentTimeMillis();
+
+    PipelineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public static PipelineMetrics getInstance() {
+        return instance;
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].recordNanos(nanos);
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public void countIncident() {
+        incidents.incrementAndGet();
+    }
+
+    public void countSms(boolean sent) {
+        (sent ? smsSent : smsFailed).incrementAndGet();
+    }
+
+    /** Una ventana pasó por la primera etapa; {@code reachedStageTwo} si llegó al clasificador. */
+    public void countScreened(boolean reachedStageTwo) {
+        windowsScreened.incrementAndGet();
+        if (reachedStageTwo) {
+            windowsStageTwo.incrementAndGet();
+        }
+    }
+
+    /** Fracción de las ventanas cribadas que llegaron al clasificador completo. */
+    public float getStageTwoRatio() {
+        long screened = windowsScreened.get();
+        return screened == 0 ? 0f : (float) windowsStageTwo.get() / screened;
+    }
+
+    /** Resumen de pocas líneas: p50/p99 por etapa con datos y contadores. */
+    public String summary() {
+        StringBuilder out = new StringBuilder(256);
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = get(stage);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            out.append(stage.displayName).append(": p50 ")
+                    .append(formatMicros(histogram.percentileMicros(0.50))).append(", p99 ")
+                    .append(formatMicros(histogram.percentileMicros(0.99))).append(" (n=")
+                    .append(histogram.getCount()).append(")\n");
+        }
+        if (windowsScreened.get() > 0) {
+            out.append(String.format(Locale.US, "etapa 2: %.1f%% de %d ventanas\n",
+                    getStageTwoRatio() * 100f, windowsScreened.get()));
+        }
+        out.append("incidentes ").append(incidents.get())
+                .append(", SMS enviados ").append(smsSent.get())
+                .append(", fallidos ").append(smsFailed.get());
+        return out.toString();
+    }
+
+    /** Escribe un CSV con percentiles y cubetas de cada etapa en {@code dir}. */
+    public File exportTo(File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("No se pudo crear " + dir);
+        }
+        File file = new File(dir, "metricas-" + System.currentTimeMillis() + ".csv");
+        try (Writer out = new FileWriter(file)) {
+            writeCsv(out);
+        }
+        return file;
+    }
+
+    void writeCsv(Writer out) throws IOException {
+        out.write("# desde " + createdAtMs + ", incidentes " + incidents.get()
+                + ", sms_enviados " + smsSent.get() + ", sms_fallidos " + smsFailed.get()
+                + ", ventanas_cribadas " + windowsScreened.get() + ", ventanas_etapa2 " + windowsStageTwo.get() + "\n");
+        out.write("etapa,n,media_us,p50_us,p90_us,p99_us,max_us");
+        for (long bound : LatencyHistogram.BOUNDS_US) {
+            out.write(",le_" + bound);
+        }
+        out.write(",inf\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = get(stage);
+            out.write(String.format(Locale.US, "%s,%d,%d,%d,%d,%d,%d", stage.name(), histogram.getCount(),
+                    histogram.getMeanMicros(), histogram.percentileMicros(0.50), histogram.percentileMicros(0.90),
+                    histogram.percentileMicros(0.99), histogram.getMaxMicros()));
+            for (long count : histogram.getBucketCounts()) {
+                out.write("," + count);
+            }
+            out.write("\n");
+        }
+    }
+
+    static String formatMicros(long micros) {
+        if (micros < 1_000) {
+            return micros + " µs";
+        }
+        if (micros < 1_000_000) {
+            return String.format(Locale.US, "%.1f ms", micros / 1000.0);
+        }
+        return String.format(Locale.US, "%.2f s", micros / 1_000_000.0);
+    }
+}
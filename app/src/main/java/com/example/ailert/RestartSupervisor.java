@@ -0,0 +1,90 @@
+package com.example.ailert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decide cuándo reiniciar el servicio tras una parada inesperada.
+ *
+ * Cada reinicio espera el doble que el anterior (hasta {@code maxDelayMs}), y si hay
+ * {@code maxRestarts} reinicios dentro de {@code loopWindowMs} se considera un bucle de
+ * fallos y se deja de reiniciar. Un arranque pedido por el usuario o por el encendido
+ * del teléfono limpia el historial con {@link #reset()}.
+ */
+public final class RestartSupervisor {
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int maxRestarts;
+    private final long loopWindowMs;
+    // Instantes de los reinicios recientes, en orden
+    private final List<Long> restarts = new ArrayList<>();
+
+    public RestartSupervisor(long baseDelayMs, long maxDelayMs, int maxRestarts, long loopWindowMs) {
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxRestarts = maxRestarts;
+        this.loopWindowMs = loopWindowMs;
+    }
+
+    /** 2 s, 4 s, 8 s... hasta 5 min; 6 reinicios en 15 min es un bucle. */
+    public static RestartSupervisor withDefaults() {
+        return new RestartSupervisor(2_000, 5 * 60_000, 6, 15 * 60_000);
+    }
+
+    public synchronized void recordRestart(long nowMs) {
+        prune(nowMs);
+        restarts.add(nowMs);
+    }
+
+    public synchronized void reset() {
+        restarts.clear();
+    }
+
+    public synchronized int getRecentRestarts(long nowMs) {
+        prune(nowMs);
+        return restarts.size();
+    }
+
+    public synchronized boolean isCrashLooping(long nowMs) {
+        return getRecentRestarts(nowMs) >= maxRestarts;
+    }
+
+    /** Espera antes del próximo reinicio según cuántos hubo en la ventana reciente. */
+    public synchronized long nextDelayMs(long nowMs) {
+        int recent = Math.min(getRecentRestarts(nowMs), 30);
+        return Math.min(baseDelayMs << recent, maxDelayMs);
+    }
+
+    private void prune(long nowMs) {
+        while (!restarts.isEmpty() && nowMs - restarts.get(0) > loopWindowMs) {
+            restarts.remove(0);
+        }
+    }
+
+    /** Historial como texto para guardarlo en preferencias. */
+    public synchronized String encode() {
+        StringBuilder out = new StringBuilder();
+        for (Long restart : restarts) {
+            if (out.length() > 0) {
+                out.append(',');
+            }
+            out.append(restart);
+        }
+        return out.toString();
+    }
+
+    public synchronized void decode(String encoded) {
+        restarts.clear();
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String value : encoded.split(",")) {
+            try {
+                restarts.add(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                // Entrada corrupta: se ignora, el historial sólo afecta a la espera
+            }
+        }
+    }
+}
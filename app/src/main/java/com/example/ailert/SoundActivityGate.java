@@ -0,0 +1,142 @@
+package com.example.ailert;
+
+/**
+ * Filtro de actividad sonora previo al clasificador. Decide con aritmética simple sobre
+ * las muestras PCM si vale la pena despertar al modelo, sin reservar memoria.
+ *
+ * Se clasifica una ventana cuando su energía RMS supera el piso de ruido adaptativo en
+ * {@code marginDb}, o cuando hay un salto brusco de energía entre sub-tramas (golpes,
+ * disparos, vidrio). Tras una ventana activa se siguen clasificando {@code hangoverWindows}
+ * ventanas para no cortar sonidos largos.
+ */
+public class SoundActivityGate {
+
+    private static final int SUB_FRAMES = 32;
+    private static final float MIN_DB = -100f;
+
+    // Velocidades de adaptación del piso de ruido: baja rápido, sube despacio
+    private static final float FLOOR_FALL_RATE = 0.5f;
+    private static final float FLOOR_RISE_RATE = 0.05f;
+    private static final float FLOOR_RISE_RATE_ACTIVE = 0.005f;
+
+    private final float marginDb;
+    private final float fluxDb;
+    private final int hangoverWindows;
+
+    private float noiseFloorDb = Float.NaN;
+    private int hangover;
+
+    private volatile float lastRmsDb = MIN_DB;
+    private volatile float lastFluxDb;
+    private volatile float lastZeroCrossingRate;
+    private volatile long windowsClassified;
+    private volatile long windowsSkipped;
+
+    public SoundActivityGate() {
+        this(10f, 12f, 3);
+    }
+
+    public SoundActivityGate(float marginDb, float fluxDb, int hangoverWindows) {
+        this.marginDb = marginDb;
+        this.fluxDb = fluxDb;
+        this.hangoverWindows = hangoverWindows;
+    }
+
+    /** Llamado desde el hilo de inferencia con cada ventana. */
+    public boolean shouldClassify(float[] samples, int offset, int length) {
+        int frameLength = Math.max(length / SUB_FRAMES, 1);
+        double totalEnergy = 0;
+        float previousFrameDb = Float.NaN;
+        float maxFlux = 0f;
+        int zeroCrossings = 0;
+        float previous = length > 0 ? samples[offset] : 0f;
+
+        for (int frameStart = 0; frameStart < length; frameStart += frameLength) {
+            int frameEnd = Math.min(frameStart + frameLength, length);
+            double frameEnergy = 0;
+            for (int i = frameStart; i < frameEnd; i++) {
+                float sample = samples[offset + i];
+                frameEnergy += sample * sample;
+                if ((sample >= 0f) != (previous >= 0f)) {
+                    zeroCrossings++;
+                }
+                previous = sample;
+            }
+            totalEnergy += frameEnergy;
+
+            float frameDb = toDb(frameEnergy / (frameEnd - frameStart));
+            if (!Float.isNaN(previousFrameDb) && frameDb - previousFrameDb > maxFlux) {
+                maxFlux = frameDb - previousFrameDb;
+            }
+            previousFrameDb = frameDb;
+        }
+
+        float rmsDb = length > 0 ? toDb(totalEnergy / length) : MIN_DB;
+        lastRmsDb = rmsDb;
+        lastFluxDb = maxFlux;
+        lastZeroCrossingRate = length > 1 ? (float) zeroCrossings / (length - 1) : 0f;
+
+        if (Float.isNaN(noiseFloorDb)) {
+            noiseFloorDb = rmsDb;
+        }
+
+        boolean active = rmsDb > noiseFloorDb + marginDb || maxFlux > fluxDb;
+        if (active) {
+            hangover = hangoverWindows;
+        } else if (hangover > 0) {
+            hangover--;
+            active = true;
+        }
+
+        float rate;
+        if (rmsDb < noiseFloorDb) {
+            rate = FLOOR_FALL_RATE;
+        } else {
+            rate = active ? FLOOR_RISE_RATE_ACTIVE : FLOOR_RISE_RATE;
+        }
+        noiseFloorDb += rate * (rmsDb - noiseFloorDb);
+
+        if (active) {
+            windowsClassified++;
+        } else {
+            windowsSkipped++;
+        }
+        return active;
+    }
+
+    private static float toDb(double meanSquare) {
+        if (meanSquare <= 1e-10) {
+            return MIN_DB;
+        }
+        return (float) (10.0 * Math.log10(meanSquare));
+    }
+
+    public float getNoiseFloorDb() {
+        return noiseFloorDb;
+    }
+
+    public float getLastRmsDb() {
+        return lastRmsDb;
+    }
+
+    public float getLastFluxDb() {
+        return lastFluxDb;
+    }
+
+    public float getLastZeroCrossingRate() {
+        return lastZeroCrossingRate;
+    }
+
+    public long getWindowsClassified() {
+        return windowsClassified;
+    }
+
+    public long getWindowsSkipped() {
+        return windowsSkipped;
+    }
+
+    public float getSkipRatio() {
+        long total = windowsClassified + windowsSkipped;
+        return total == 0 ? 0f : (float) windowsSkipped / total;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.ailert;
+
+import java.util.List;
+
+/**
+ * Clasificador de una ventana de audio que devuelve el vector completo de puntuaciones.
+ * En la app lo implementa el préstamo de {@link ClassifierPool}; en las pruebas basta con
+ * un clasificador falso.
+ */
+public interface SoundClassifier {
+
+    /** Etiquetas del modelo, en el orden de su vector de puntuaciones. */
+    List<String> getLabels();
+
+    /** Tramas log-mel que espera el modelo, o 0 si clasifica la forma de onda. */
+    default int getFeatureFrames() {
+        return 0;
+    }
+
+    /** Bandas mel de cada trama; sólo tiene sentido si {@link #getFeatureFrames()} es mayor que 0. */
+    default int getMelBins() {
+        return 0;
+    }
+
+    /** Clasifica una ventana y escribe la puntuación de cada etiqueta en {@code scores}. */
+    void classify(float[] window, float[] scores);
+
+    /**
+     * Clasifica {@code count} ventanas, escribiendo las puntuaciones de {@code windows[i]} en
+     * {@code scores[i]}. Por defecto es una llamada por ventana; el modelo real las agrupa en
+     * una sola invocación cuando su entrada admite lotes.
+     */
+    default void classifyBatch(float[][] windows, int count, float[][] scores) {
+        for (int i = 0; i < count; i++) {
+            classify(windows[i], scores[i]);
+        }
+    }
+}
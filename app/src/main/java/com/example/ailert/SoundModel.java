@@ -0,0 +1,261 @@
+package com.example.ailert;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.support.common.FileUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modelo de clasificación de sonidos sobre el {@link Interpreter} de TFLite, sin la capa
+ * de Task Library. Las etiquetas, la frecuencia de muestreo y el tamaño de ventana se leen
+ * una vez de los metadatos, y entrada y salida usan buffers directos reservados al cargar:
+ * clasificar una ventana no crea objetos en el heap de Java.
+ *
+ * Admite dos tipos de modelo: de forma de onda (entrada [1, muestras]) y de características
+ * (entrada [1, tramas, bandas] o [1, tramas, bandas, 1] con tramas log-mel de
+ * {@link LogMelStream}). En el segundo, {@link #getWindowSize()} sigue dando las muestras
+ * de audio que cubre una entrada, y {@link #classify} recibe las tramas ya calculadas.
+ *
+ * Si la primera dimensión de la entrada es el lote, {@link #classifyBatch} ejecuta varias
+ * ventanas en una sola invocación de un segundo intérprete fijo en lotes de
+ * {@link #MAX_BATCH}; un lote incompleto deja filas sin usar en lugar de redimensionar. Cada
+ * intérprete reserva sus tensores una sola vez: ninguno cambia de forma en la ruta caliente.
+ *
+ * No es seguro entre hilos; {@link ClassifierPool} serializa las llamadas.
+ */
+final class SoundModel implements Closeable {
+
+    private static final int DEFAULT_SAMPLE_RATE = 16000;
+    private static final String TAG = "AIlert";
+
+    /** Ventanas como máximo por invocación del intérprete. */
+    static final int MAX_BATCH = DetectionPipeline.MAX_BATCH;
+
+    private final Interpreter interpreter;
+    private final List<String> labels;
+    private final int sampleRate;
+    private final int windowSize;
+    // Valores por elemento del lote en la entrada; igual a windowSize en modelos de forma de onda
+    private final int inputSize;
+    private final int[] inputShape;
+    private final int featureFrames;
+    private final int melBins;
+
+    private final ByteBuffer input;
+    private final FloatBuffer inputFloats;
+    private final ByteBuffer output;
+    private final FloatBuffer outputFloats;
+    private final Object[] inputs;
+    private final Map<Integer, Object> outputs = new HashMap<>();
+
+    // Intérprete de lotes; se crea con el primer lote y comparte el archivo mapeado del modelo
+    private final MappedByteBuffer modelBuffer;
+    private final Interpreter.Options options;
+    private Interpreter batchInterpreter;
+    private ByteBuffer batchInput;
+    private ByteBuffer batchOutput;
+    private FloatBuffer batchInputFloats;
+    private FloatBuffer batchOutputFloats;
+    private final Object[] batchInputArray = new Object[1];
+    private final Map<Integer, Object> batchOutputMap = new HashMap<>();
+    private boolean batchSupported;
+
+    private SoundModel(Interpreter interpreter, MappedByteBuffer modelBuffer, Interpreter.Options options,
+                       List<String> labels, int sampleRate) {
+        this.interpreter = interpreter;
+        this.modelBuffer = modelBuffer;
+        this.options = options;
+        this.labels = Collections.unmodifiableList(labels);
+        this.sampleRate = sampleRate;
+        this.inputShape = interpreter.getInputTensor(0).shape();
+        this.inputSize = interpreter.getInputTensor(0).numElements();
+        if (inputShape.length >= 3) {
+            featureFrames = inputShape[1];
+            melBins = inputShape[2];
+            windowSize = new LogMelStream(sampleRate, melBins, 1).samplesFor(featureFrames);
+        } else {
+            featureFrames = 0;
+            melBins = 0;
+            windowSize = inputSize;
+        }
+
+        int outputSize = interpreter.getOutputTensor(0).numElements();
+        if (outputSize != labels.size()) {
+            throw new IllegalArgumentException("La salida tiene " + outputSize + " puntuaciones y hay " + labels.size() + " etiquetas");
+        }
+        input = ByteBuffer.allocateDirect(inputSize * 4).order(ByteOrder.nativeOrder());
+        inputFloats = input.asFloatBuffer();
+        output = ByteBuffer.allocateDirect(outputSize * 4).order(ByteOrder.nativeOrder());
+        outputFloats = output.asFloatBuffer();
+        inputs = new Object[]{input};
+        outputs.put(0, output);
+
+        batchSupported = inputShape.length >= 2 && inputShape[0] == 1;
+    }
+
+    /**
+     * El modelo se mapea directamente desde el APK (openFd): no se copia ni se descomprime,
+     * por eso la compilación declara "tflite" como noCompress.
+     */
+    static SoundModel load(Context context, ClassifierConfig config) throws IOException {
+        MappedByteBuffer buffer = FileUtil.loadMappedFile(context, config.getModelPath());
+        List<String> labels = ModelRegistry.readLabels(buffer, config.getModelPath());
+        int sampleRate = ModelRegistry.readSampleRate(buffer, DEFAULT_SAMPLE_RATE);
+        Interpreter.Options options = config.toInterpreterOptions();
+        Interpreter interpreter = new Interpreter(buffer, options);
+        try {
+            return new SoundModel(interpreter, buffer, options, labels, sampleRate);
+        } catch (RuntimeException e) {
+            interpreter.close();
+            throw e;
+        }
+    }
+
+    List<String> getLabels() {
+        return labels;
+    }
+
+    int getSampleRate() {
+        return sampleRate;
+    }
+
+    int getWindowSize() {
+        return windowSize;
+    }
+
+    /** Tramas log-mel por entrada, o 0 si el modelo recibe la forma de onda. */
+    int getFeatureFrames() {
+        return featureFrames;
+    }
+
+    int getMelBins() {
+        return melBins;
+    }
+
+    /** Copia la ventana a la entrada, ejecuta el modelo y deja una puntuación por etiqueta en {@code scores}. */
+    void classify(float[] window, float[] scores) {
+        long start = System.nanoTime();
+        inputFloats.clear();
+        inputFloats.put(window, 0, Math.min(window.length, inputSize));
+        while (inputFloats.hasRemaining()) {
+            inputFloats.put(0f);
+        }
+        input.rewind();
+        output.rewind();
+        long loaded = System.nanoTime();
+        interpreter.runForMultipleInputsOutputs(inputs, outputs);
+        outputFloats.clear();
+        outputFloats.get(scores, 0, labels.size());
+
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.record(PipelineMetrics.Stage.LOAD, loaded - start);
+        metrics.record(PipelineMetrics.Stage.CLASSIFY, System.nanoTime() - loaded);
+    }
+
+    /**
+     * Clasifica {@code count} ventanas en una sola invocación si el modelo lo admite; si no
+     * (o si preparar el intérprete de lotes falla una vez), una por una.
+     */
+    void classifyBatch(float[][] windows, int count, float[][] scores) {
+        if (count == 1 || !batchSupported || count > MAX_BATCH || !ensureBatchInterpreter()) {
+            for (int i = 0; i < count; i++) {
+                classify(windows[i], scores[i]);
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        FloatBuffer floats = batchInputFloats;
+        // Las filas de un lote incompleto conservan lo anterior: su salida no se lee
+        floats.clear();
+        for (int i = 0; i < count; i++) {
+            floats.position(i * inputSize);
+            floats.put(windows[i], 0, Math.min(windows[i].length, inputSize));
+            while (floats.position() < (i + 1) * inputSize) {
+                floats.put(0f);
+            }
+        }
+        batchInput.rewind();
+        batchOutput.rewind();
+        long loaded = System.nanoTime();
+        batchInterpreter.runForMultipleInputsOutputs(batchInputArray, batchOutputMap);
+        FloatBuffer results = batchOutputFloats;
+        results.clear();
+        for (int i = 0; i < count; i++) {
+            results.position(i * labels.size());
+            results.get(scores[i], 0, labels.size());
+        }
+
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.record(PipelineMetrics.Stage.LOAD, loaded - start);
+        metrics.record(PipelineMetrics.Stage.CLASSIFY, System.nanoTime() - loaded);
+    }
+
+    /** Crea una sola vez el intérprete con entrada de {@link #MAX_BATCH} ventanas; false si el modelo no lo admite. */
+    private boolean ensureBatchInterpreter() {
+        if (batchInterpreter != null) {
+            return true;
+        }
+        Interpreter created = null;
+        try {
+            created = new Interpreter(modelBuffer, options);
+            created.resizeInput(0, shapeFor(MAX_BATCH));
+            created.allocateTensors();
+            if (created.getOutputTensor(0).numElements() != MAX_BATCH * labels.size()) {
+                throw new IllegalArgumentException("La salida no escala con el lote");
+            }
+            batchInput = ByteBuffer.allocateDirect(MAX_BATCH * inputSize * 4).order(ByteOrder.nativeOrder());
+            batchOutput = ByteBuffer.allocateDirect(MAX_BATCH * labels.size() * 4).order(ByteOrder.nativeOrder());
+            batchInputFloats = batchInput.asFloatBuffer();
+            batchOutputFloats = batchOutput.asFloatBuffer();
+            batchInputArray[0] = batchInput;
+            batchOutputMap.put(0, batchOutput);
+            batchInterpreter = created;
+            return true;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "El modelo no admite lotes de " + MAX_BATCH + " ventanas; se clasifican una por una", e);
+            batchSupported = false;
+            if (created != null) {
+                created.close();
+            }
+            return false;
+        }
+    }
+
+    private int[] shapeFor(int batch) {
+        int[] shape = inputShape.clone();
+        shape[0] = batch;
+        return shape;
+    }
+
+    /** Grabador mono en float a la frecuencia del modelo, con margen para dos ventanas. */
+    @SuppressLint("MissingPermission")
+    AudioRecord createAudioRecord() {
+        int minBuffer = AudioRecord.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_FLOAT);
+        return new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, sampleRate,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_FLOAT, Math.max(minBuffer, windowSize * 4 * 2));
+    }
+
+    @Override
+    public void close() {
+        interpreter.close();
+        if (batchInterpreter != null) {
+            batchInterpreter.close();
+        }
+    }
+}
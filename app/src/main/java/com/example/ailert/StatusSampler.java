@@ -0,0 +1,75 @@
+package com.example.ailert;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Muestrea un {@link DetectionStatus} desde el hilo principal mientras la pantalla es
+ * visible: una vez por frame (intervalo 0) o cada {@code intervalMs}. Sólo llama al
+ * callback cuando hay una publicación nueva, y fuera de {@link #start()}/{@link #stop()}
+ * no programa nada, así que la detección en segundo plano no genera trabajo de interfaz.
+ */
+public class StatusSampler {
+
+    public interface Callback {
+        /** En el hilo principal, con una copia que el sampler reutiliza en cada llamada. */
+        void onStatus(DetectionStatus.Sample sample);
+    }
+
+    private final Callback callback;
+    private final long intervalMs;
+    private final DetectionStatus.Sample sample = new DetectionStatus.Sample();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> tick();
+    private final Runnable tickTask = this::tick;
+
+    private DetectionStatus status;
+    private long lastVersion = -1;
+    private boolean running;
+
+    public StatusSampler(long intervalMs, Callback callback) {
+        this.intervalMs = intervalMs;
+        this.callback = callback;
+    }
+
+    /** Fuente a muestrear; puede cambiar al (des)enlazar el servicio. Null deja de mostrar cambios. */
+    public void setStatus(DetectionStatus status) {
+        this.status = status;
+        lastVersion = -1;
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        schedule();
+    }
+
+    public void stop() {
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+        handler.removeCallbacks(tickTask);
+    }
+
+    private void tick() {
+        if (!running) {
+            return;
+        }
+        DetectionStatus current = status;
+        if (current != null && current.getVersion() != lastVersion && current.copyTo(sample)) {
+            lastVersion = sample.version;
+            callback.onStatus(sample);
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (intervalMs <= 0) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        } else {
+            handler.postDelayed(tickTask, intervalMs);
+        }
+    }
+}
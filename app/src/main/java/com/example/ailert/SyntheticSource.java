@@ -0,0 +1,108 @@
+package com.example.ailert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generador de audio para pruebas: ruido de fondo más eventos programados (tonos
+ * sostenidos tipo sirena y ráfagas impulsivas tipo disparo), con semilla fija.
+ */
+public class SyntheticSource implements AudioSource {
+
+    private static final class Event {
+        final long startSample;
+        final long endSample;
+        final float frequencyHz;
+        final float amplitude;
+        final boolean impulsive;
+
+        Event(long startSample, long endSample, float frequencyHz, float amplitude, boolean impulsive) {
+            this.startSample = startSample;
+            this.endSample = endSample;
+            this.frequencyHz = frequencyHz;
+            this.amplitude = amplitude;
+            this.impulsive = impulsive;
+        }
+    }
+
+    private final int sampleRate;
+    private final long totalSamples;
+    private final float noiseAmplitude;
+    private final Random random;
+    private final List<Event> events = new ArrayList<>();
+    private long position;
+
+    public SyntheticSource(int sampleRate, long durationMs, float noiseAmplitude, long seed) {
+        this.sampleRate = sampleRate;
+        this.totalSamples = durationMs * sampleRate / 1000;
+        this.noiseAmplitude = noiseAmplitude;
+        this.random = new Random(seed);
+    }
+
+    /** Tono senoidal continuo entre {@code startMs} y {@code startMs + durationMs}. */
+    public SyntheticSource addTone(long startMs, long durationMs, float frequencyHz, float amplitude) {
+        events.add(new Event(toSample(startMs), toSample(startMs + durationMs), frequencyHz, amplitude, false));
+        return this;
+    }
+
+    /** Un impulso de ruido con caída exponencial de ~50 ms. */
+    public SyntheticSource addImpulse(long startMs, float amplitude) {
+        events.add(new Event(toSample(startMs), toSample(startMs + 200), 0f, amplitude, true));
+        return this;
+    }
+
+    private long toSample(long ms) {
+        return ms * sampleRate / 1000;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean isLive() {
+        return false;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public int read(float[] dst, int offset, int length) {
+        int count = (int) Math.min(length, totalSamples - position);
+        if (count <= 0) {
+            return -1;
+        }
+        float decay = sampleRate * 0.05f;
+        for (int i = 0; i < count; i++) {
+            long n = position + i;
+            float sample = (float) random.nextGaussian() * noiseAmplitude;
+            for (int e = 0; e < events.size(); e++) {
+                Event event = events.get(e);
+                if (n < event.startSample || n >= event.endSample) {
+                    continue;
+                }
+                if (event.impulsive) {
+                    float envelope = (float) Math.exp(-(n - event.startSample) / decay);
+                    sample += (random.nextFloat() * 2f - 1f) * event.amplitude * envelope;
+                } else {
+                    sample += event.amplitude * (float) Math.sin(2 * Math.PI * event.frequencyHz * n / sampleRate);
+                }
+            }
+            dst[offset + i] = Math.max(-1f, Math.min(1f, sample));
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.ailert;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link AudioSource} que lee PCM de 16 bits de un WAV o de un archivo PCM crudo.
+ * Si hay varios canales se mezclan a mono. Entrega el audio sin esperar al reloj.
+ */
+public class WavFileSource implements AudioSource {
+
+    private static final int CHUNK_FRAMES = 4096;
+
+    private final DataInputStream in;
+    private final int sampleRate;
+    private final int channels;
+    private final byte[] bytes;
+    private long remainingBytes;
+
+    private WavFileSource(InputStream in, int sampleRate, int channels, long dataBytes) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bytes = new byte[CHUNK_FRAMES * 2 * channels];
+        this.remainingBytes = dataBytes;
+    }
+
+    public static WavFileSource open(File file) throws IOException {
+        return wav(new FileInputStream(file));
+    }
+
+    /** Lee la cabecera RIFF y deja el flujo al inicio de los datos. */
+    public static WavFileSource wav(InputStream stream) throws IOException {
+        DataInputStream header = new DataInputStream(stream);
+        try {
+            if (readTag(header) != 0x46464952 /* RIFF */) {
+                throw new IOException("No es un archivo WAV");
+            }
+            readIntLe(header);
+            if (readTag(header) != 0x45564157 /* WAVE */) {
+                throw new IOException("No es un archivo WAV");
+            }
+
+            int sampleRate = 0;
+            int channels = 0;
+            while (true) {
+                int tag = readTag(header);
+                long size = readIntLe(header) & 0xffffffffL;
+                if (tag == 0x20746d66 /* fmt  */) {
+                    int format = readShortLe(header);
+                    channels = readShortLe(header);
+                    sampleRate = readIntLe(header);
+                    header.skipBytes(6); // byte rate y block align
+                    int bits = readShortLe(header);
+                    if (format != 1 || bits != 16) {
+                        throw new IOException("Sólo se admite PCM de 16 bits (formato " + format + ", " + bits + " bits)");
+                    }
+                    skipFully(header, size - 16);
+                } else if (tag == 0x61746164 /* data */) {
+                    if (sampleRate == 0) {
+                        throw new IOException("Falta el bloque fmt antes de los datos");
+                    }
+                    return new WavFileSource(stream, sampleRate, channels, size);
+                } else {
+                    skipFully(header, size + (size & 1));
+                }
+            }
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /** PCM crudo de 16 bits little-endian, sin cabecera. */
+    public static WavFileSource raw(InputStream stream, int sampleRate, int channels) {
+        return new WavFileSource(stream, sampleRate, channels, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean isLive() {
+        return false;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public int read(float[] dst, int offset, int length) throws IOException {
+        int frameBytes = 2 * channels;
+        int frames = (int) Math.min(Math.min(length, CHUNK_FRAMES), remainingBytes / frameBytes);
+        if (frames <= 0) {
+            return -1;
+        }
+        int got = 0;
+        int wanted = frames * frameBytes;
+        while (got < wanted) {
+            int n = in.read(bytes, got, wanted - got);
+            if (n < 0) {
+                break;
+            }
+            got += n;
+        }
+        frames = got / frameBytes;
+        if (frames == 0) {
+            remainingBytes = 0;
+            return -1;
+        }
+        remainingBytes -= (long) frames * frameBytes;
+
+        if (channels == 1) {
+            PcmConverter.toFloat(bytes, 0, dst, offset, frames);
+        } else {
+            for (int f = 0; f < frames; f++) {
+                int sum = 0;
+                for (int c = 0; c < channels; c++) {
+                    int b = (f * channels + c) * 2;
+                    sum += (short) ((bytes[b] & 0xff) | (bytes[b + 1] << 8));
+                }
+                dst[offset + f] = sum / (32768f * channels);
+            }
+        }
+        return frames;
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static int readTag(DataInputStream in) throws IOException {
+        return readIntLe(in);
+    }
+
+    private static int readIntLe(DataInputStream in) throws IOException {
+        return Integer.reverseBytes(in.readInt());
+    }
+
+    private static int readShortLe(DataInputStream in) throws IOException {
+        return Short.reverseBytes(in.readShort()) & 0xffff;
+    }
+
+    private static void skipFully(DataInputStream in, long count) throws IOException {
+        while (count > 0) {
+            int skipped = in.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                throw new EOFException("WAV truncado");
+            }
+            count -= skipped;
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package com.example.ailert;
 
 import android.Manifest;
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.media.AudioRecord;
 import android.os.Bundle;
 import android.util.Log;
 import android.widget.Button;
@@ -13,12 +14,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import org.tensorflow.lite.support.audio.TensorAudio;
-import org.tensorflow.lite.task.audio.classifier.AudioClassifier;
-import org.tensorflow.lite.task.audio.classifier.Classifications;
-
+import java.io.File;
 import java.io.IOException;
-import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -26,12 +23,22 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class probarmodelo extends AppCompatActivity {
     private static final String TAG = "AudioClassifierApp";
     private static final int REQUEST_RECORD_AUDIO = 1;
+    private static final int BENCHMARK_WINDOWS = 50;
 
     private TextView txtPrediction;
     private Button btnStart;
-    private AudioClassifier classifier;
-    private TensorAudio tensorAudio;
-    private AudioRecord record;
+    private Button btnBenchmark;
+    private TextView txtMetrics;
+    private SharedPreferences preferences;
+    private ExecutorService benchmarkExecutor;
+    private ClassifierPool.Lease classifier;
+    private LabelDecision decision;
+    private final DetectionStatus status = new DetectionStatus();
+    private StatusSampler statusSampler;
+    private float[] window;
+    private float[] scores;
+    private AudioSource source;
+    private float[] chunk;
     private ExecutorService executorService;
     private final AtomicBoolean isListening = new AtomicBoolean(false);
     private final AtomicBoolean isModelLoaded = new AtomicBoolean(false);
@@ -40,16 +47,98 @@ public class probarmodelo extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_probarmodelo);
+        preferences = getSharedPreferences("AIlertPrefs", Context.MODE_PRIVATE);
 
         initializeViews();
+        statusSampler = new StatusSampler(preferences.getLong("ui_refresco_ms", 0), this::updateClassificationResult);
+        statusSampler.setStatus(status);
         checkAndRequestPermissions();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        statusSampler.start();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        statusSampler.stop();
+    }
+
     private void initializeViews() {
         txtPrediction = findViewById(R.id.txtPrediction);
         btnStart = findViewById(R.id.btnStart);
+        btnBenchmark = findViewById(R.id.btnBenchmark);
+        txtMetrics = findViewById(R.id.txtMetrics);
+        Button btnMetrics = findViewById(R.id.btnMetrics);
 
         btnStart.setOnClickListener(v -> toggleAudioClassification());
+        btnBenchmark.setOnClickListener(v -> runBenchmark());
+        btnMetrics.setOnClickListener(v -> exportMetrics());
+        txtMetrics.setText(PipelineMetrics.getInstance().summary());
+    }
+
+    private void exportMetrics() {
+        File external = getExternalFilesDir("metricas");
+        File dir = external != null ? external : new File(getFilesDir(), "metricas");
+        new Thread(() -> {
+            try {
+                File file = PipelineMetrics.getInstance().exportTo(dir);
+                Log.i(TAG, "Métricas exportadas a " + file);
+                runOnUiThread(() -> showToast("Métricas exportadas a " + file.getName()));
+            } catch (IOException e) {
+                Log.e(TAG, "No se pudieron exportar las métricas", e);
+                runOnUiThread(() -> showToast("No se pudieron exportar las métricas"));
+            }
+        }, "AIlert-metricas").start();
+    }
+
+    private void runBenchmark() {
+        if (benchmarkExecutor != null) {
+            return;
+        }
+        if (isListening.get()) {
+            stopAudioClassification();
+            btnStart.setText("Iniciar Reconocimiento");
+        }
+        btnStart.setEnabled(false);
+        btnBenchmark.setEnabled(false);
+        txtPrediction.setText("Midiendo " + BENCHMARK_WINDOWS + " ventanas por configuración...");
+
+        StringBuilder report = new StringBuilder();
+        benchmarkExecutor = Executors.newSingleThreadExecutor();
+        benchmarkExecutor.execute(() -> {
+            InferenceBenchmark benchmark = new InferenceBenchmark(this, BENCHMARK_WINDOWS);
+            // Se mide la variante que usará la detección, eligiéndola ahora si aún no se hizo
+            ModelRegistry.ensureSelected(this, preferences);
+            ClassifierConfig current = ClassifierConfig.fromPreferences(preferences);
+            InferenceBenchmark.Result best = benchmark.run(InferenceBenchmark.defaultConfigs(current), result -> {
+                Log.i(TAG, "Benchmark " + result);
+                report.append(result).append('\n');
+                updateUI(report.toString());
+            });
+
+            if (best != null) {
+                // La detección usará la configuración más rápida a partir del próximo arranque
+                SharedPreferences.Editor editor = preferences.edit();
+                best.config.saveExecution(editor);
+                editor.apply();
+                report.append("\nElegida: ").append(best.config.describe());
+            } else {
+                report.append("Ninguna configuración pudo ejecutarse");
+            }
+            updateUI(report.toString());
+            runOnUiThread(() -> {
+                btnStart.setEnabled(true);
+                btnBenchmark.setEnabled(true);
+                if (benchmarkExecutor != null) {
+                    benchmarkExecutor.shutdown();
+                    benchmarkExecutor = null;
+                }
+            });
+        });
     }
 
     private void toggleAudioClassification() {
@@ -94,20 +183,11 @@ public class probarmodelo extends AppCompatActivity {
 
     private void initializeAudioClassifier() {
         try {
-            // Configuración del modelo con las últimas especificaciones
-            AudioClassifier.AudioClassifierOptions options =
-                    AudioClassifier.AudioClassifierOptions.builder()
-                            .setMaxResults(1)  // Solo necesitamos el resultado principal
-                            .setScoreThreshold(0.3f)  // Umbral mínimo de confianza
-                            .build();
-
-            classifier = AudioClassifier.createFromFileAndOptions(
-                    this,
-                    "sound_classifier_wd_metadata.tflite",
-                    options
-            );
-
-            tensorAudio = classifier.createInputTensorAudio();
+            // Comparte la instancia del modelo con el servicio si ya está cargada
+            classifier = ClassifierPool.acquire(this, ClassifierConfig.fromPreferences(preferences));
+            decision = new LabelDecision(classifier.getLabels(), 0f);
+            window = new float[classifier.getWindowSize()];
+            scores = new float[decision.size()];
             isModelLoaded.set(true);
             Log.i(TAG, "Modelo TFLite cargado exitosamente");
         } catch (IOException e) {
@@ -121,15 +201,17 @@ public class probarmodelo extends AppCompatActivity {
 
     private boolean startAudioClassification() {
         try {
-            record = classifier.createAudioRecord();
-            record.startRecording();
+            source = new MicrophoneSource(classifier.createAudioRecord());
+            source.start();
+            // ~100 ms por lectura; la ventana se desliza con cada bloque
+            chunk = new float[Math.max(source.getSampleRate() / 10, 256)];
             isListening.set(true);
 
             executorService = Executors.newSingleThreadExecutor();
             executorService.execute(this::classificationLoop);
 
             return true;
-        } catch (IllegalStateException e) {
+        } catch (IOException | IllegalStateException e) {
             handleError("Error grabación", "No se pudo iniciar la grabación", e);
             return false;
         } catch (Exception e) {
@@ -141,42 +223,47 @@ public class probarmodelo extends AppCompatActivity {
     private void classificationLoop() {
         while (isListening.get()) {
             try {
-                tensorAudio.load(record);
-                List<Classifications> output = classifier.classify(tensorAudio);
-
-                if (output == null || output.isEmpty()) {
-                    Log.w(TAG, "Clasificación devolvió resultados vacíos");
-                    continue;
+                int read = source.read(chunk, 0, chunk.length);
+                if (read < 0) {
+                    break;
                 }
+                System.arraycopy(window, read, window, 0, window.length - read);
+                System.arraycopy(chunk, 0, window, window.length - read, read);
+                classifier.classify(window, scores);
 
-                Classifications classifications = output.get(0);
-                if (classifications.getCategories().isEmpty()) {
-                    Log.w(TAG, "No se encontraron categorías en la clasificación");
+                decision.evaluate(scores);
+                int top = decision.getTopIndex();
+                if (top < 0) {
+                    Log.w(TAG, "Clasificación devolvió resultados vacíos");
                     continue;
                 }
+                String label = decision.label(top);
+                float score = scores[top];
 
-                String label = classifications.getCategories().get(0).getLabel();
-                float score = classifications.getCategories().get(0).getScore();
-
-                updateClassificationResult(label, score);
+                // La interfaz lo muestrea a su ritmo; este hilo nunca espera al principal
+                status.publish(label, score, System.currentTimeMillis());
 
             } catch (IllegalStateException e) {
                 handleClassificationError("Error clasificando", e);
                 break;
             } catch (Exception e) {
-                handleClassificationError("Error procesando", e);
+                if (isListening.get()) {
+                    handleClassificationError("Error procesando", e);
+                }
                 break;
             }
         }
     }
 
-    private void updateClassificationResult(String label, float score) {
-        runOnUiThread(() -> {
-            String resultText = score < 0.5f ?
-                    "Neutral (" + (int)(score * 100) + "%)" :
-                    label + " (" + (int)(score * 100) + "%)";
-            txtPrediction.setText(resultText);
-        });
+    private void updateClassificationResult(DetectionStatus.Sample sample) {
+        if (!isListening.get()) {
+            return;
+        }
+        String resultText = sample.score < 0.5f ?
+                "Neutral (" + (int)(sample.score * 100) + "%)" :
+                sample.label + " (" + (int)(sample.score * 100) + "%)";
+        txtPrediction.setText(resultText);
+        txtMetrics.setText(PipelineMetrics.getInstance().summary());
     }
 
     private void stopAudioClassification() {
@@ -187,14 +274,14 @@ public class probarmodelo extends AppCompatActivity {
             executorService = null;
         }
 
-        if (record != null) {
+        if (source != null) {
             try {
-                record.stop();
-                record.release();
-            } catch (IllegalStateException e) {
+                source.stop();
+                source.close();
+            } catch (IOException | IllegalStateException e) {
                 Log.e(TAG, "Error al detener la grabación", e);
             } finally {
-                record = null;
+                source = null;
             }
         }
     }
@@ -225,13 +312,14 @@ public class probarmodelo extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         stopAudioClassification();
+        if (benchmarkExecutor != null) {
+            benchmarkExecutor.shutdownNow();
+            benchmarkExecutor = null;
+        }
 
         if (classifier != null) {
-            try {
-                classifier.close();
-            } catch (Exception e) {
-                Log.w(TAG, "Error al cerrar el clasificador", e);
-            }
+            classifier.close();
+            classifier = null;
         }
     }
 }
\ No newline at end of file
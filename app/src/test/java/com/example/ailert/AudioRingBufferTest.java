@@ -0,0 +1,100 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AudioRingBufferTest {
+
+    private static float[] ramp(int from, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = from + i;
+        }
+        return samples;
+    }
+
+    @Test
+    public void returnsNothingUntilAWindowIsComplete() {
+        AudioRingBuffer ring = new AudioRingBuffer(4, 4);
+        ring.write(ramp(0, 3), 0, 3);
+
+        assertEquals(0, ring.awaitWindows(new float[1][4], 1, 0));
+        assertEquals(0, ring.getWindowsConsumed());
+    }
+
+    @Test
+    public void takesNewestWindowAndCountsStaleOnes() {
+        AudioRingBuffer ring = new AudioRingBuffer(4, 4);
+        ring.write(ramp(0, 10), 0, 10);
+
+        float[][] window = new float[1][4];
+        assertEquals(1, ring.awaitWindows(window, 1, 0));
+        assertArrayEquals(new float[]{4, 5, 6, 7}, window[0], 0f);
+        assertEquals(1, ring.getWindowsDropped());
+        assertEquals(1, ring.getWindowsConsumed());
+    }
+
+    @Test
+    public void readsAcrossTheWrapPoint() {
+        AudioRingBuffer ring = new AudioRingBuffer(4, 4);
+        float[][] window = new float[1][4];
+        for (int i = 0; i < 5; i++) {
+            ring.write(ramp(i * 4, 4), 0, 4);
+            assertEquals(1, ring.awaitWindows(window, 1, 0));
+        }
+        ring.write(ramp(20, 2), 0, 2);
+        ring.write(ramp(22, 2), 0, 2);
+
+        assertEquals(1, ring.awaitWindows(window, 1, 0));
+        assertArrayEquals(new float[]{20, 21, 22, 23}, window[0], 0f);
+        assertEquals(0, ring.getWindowsDropped());
+    }
+
+    @Test
+    public void oversizedWriteStillLeavesAReadableWindow() {
+        AudioRingBuffer ring = new AudioRingBuffer(100, 100, 2);
+        ring.write(ramp(0, 200), 0, 200);
+
+        float[][] window = new float[1][100];
+        assertEquals(1, ring.awaitWindows(window, 1, 0));
+        assertEquals(100f, window[0][0], 0f);
+        assertEquals(199f, window[0][99], 0f);
+
+        // Sin datos nuevos se respeta el plazo en lugar de girar
+        long start = System.nanoTime();
+        assertEquals(0, ring.awaitWindows(window, 1, 1_000_000));
+        assertTrue(System.nanoTime() - start < 500_000_000L);
+    }
+
+    @Test
+    public void overlappingWindowsAdvanceByHop() {
+        AudioRingBuffer ring = new AudioRingBuffer(4, 2, 4);
+        float[][] windows = new float[4][4];
+        ring.write(ramp(0, 8), 0, 8);
+
+        assertEquals(3, ring.awaitWindows(windows, 4, 0));
+        assertArrayEquals(new float[]{0, 1, 2, 3}, windows[0], 0f);
+        assertArrayEquals(new float[]{2, 3, 4, 5}, windows[1], 0f);
+        assertArrayEquals(new float[]{4, 5, 6, 7}, windows[2], 0f);
+
+        ring.write(ramp(8, 2), 0, 2);
+        assertEquals(1, ring.awaitWindows(windows, 4, 0));
+        assertArrayEquals(new float[]{6, 7, 8, 9}, windows[0], 0f);
+        assertEquals(0, ring.awaitWindows(windows, 4, 0));
+    }
+
+    @Test
+    public void batchKeepsNewestWindowsWhenBehind() {
+        AudioRingBuffer ring = new AudioRingBuffer(4, 2, 4);
+        float[][] windows = new float[2][4];
+        for (int i = 0; i < 6; i++) {
+            ring.write(ramp(i * 2, 2), 0, 2);
+        }
+
+        assertEquals(2, ring.awaitWindows(windows, 2, 0));
+        assertArrayEquals(new float[]{6, 7, 8, 9}, windows[0], 0f);
+        assertArrayEquals(new float[]{8, 9, 10, 11}, windows[1], 0f);
+        assertEquals(3, ring.getWindowsDropped());
+    }
+}
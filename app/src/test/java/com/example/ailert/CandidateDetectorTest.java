@@ -0,0 +1,59 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CandidateDetectorTest {
+
+    private static final int RATE = 16000;
+    private static final int WINDOW = 15600;
+
+    private static float[] window(SyntheticSource source) {
+        float[] samples = new float[WINDOW];
+        int filled = 0;
+        while (filled < WINDOW) {
+            filled += source.read(samples, filled, WINDOW - filled);
+        }
+        return samples;
+    }
+
+    @Test
+    public void sirenToneIsCandidate() {
+        CandidateDetector detector = new CandidateDetector(RATE, 0);
+        float[] samples = window(new SyntheticSource(RATE, 1000, 0.05f, 1).addTone(0, 1000, 900f, 0.3f));
+
+        assertTrue(detector.isCandidate(samples, 0, WINDOW));
+        assertTrue(detector.getLastTonality() > 0.8f);
+    }
+
+    @Test
+    public void impulseIsCandidate() {
+        CandidateDetector detector = new CandidateDetector(RATE, 0);
+        float[] samples = window(new SyntheticSource(RATE, 1000, 0.02f, 2).addImpulse(400, 0.9f));
+
+        assertTrue(detector.isCandidate(samples, 0, WINDOW));
+        assertTrue(detector.getLastImpulseDb() > CandidateDetector.DEFAULT_IMPULSE_DB);
+    }
+
+    @Test
+    public void steadyNoiseStopsAtStageOne() {
+        CandidateDetector detector = new CandidateDetector(RATE, 0);
+        SyntheticSource noise = new SyntheticSource(RATE, 5000, 0.3f, 3);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(detector.isCandidate(window(noise), 0, WINDOW));
+        }
+        assertEquals(0f, detector.getPassRatio(), 0f);
+    }
+
+    @Test
+    public void hangoverKeepsFollowingWindows() {
+        CandidateDetector detector = new CandidateDetector(RATE, 2);
+        SyntheticSource source = new SyntheticSource(RATE, 4000, 0.02f, 4).addImpulse(100, 1f);
+
+        assertTrue(detector.isCandidate(window(source), 0, WINDOW));
+        assertTrue(detector.isCandidate(window(source), 0, WINDOW));
+        assertTrue(detector.isCandidate(window(source), 0, WINDOW));
+        assertFalse(detector.isCandidate(window(source), 0, WINDOW));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectionAggregatorTest {
+
+    private final List<String> incidents = new ArrayList<>();
+    private final DetectionAggregator aggregator = new DetectionAggregator(
+            (label, peakScore, timestampMs) -> incidents.add(label + "@" + timestampMs),
+            5, 2, 0.6f, 0.5f, 0.25f, 0.4f, 60_000L);
+
+    @Test
+    public void longSirenProducesSingleIncident() {
+        for (int i = 0; i < 15; i++) {
+            aggregator.onScore("siren", 0.8f, i * 1000L);
+        }
+
+        assertEquals(1, incidents.size());
+        assertEquals("siren@1000", incidents.get(0));
+        assertTrue(aggregator.snapshot().get("siren").active);
+    }
+
+    @Test
+    public void listenerRunsOutsideTheAggregatorLock() throws Exception {
+        final boolean[] readerFinished = new boolean[1];
+        final DetectionAggregator[] holder = new DetectionAggregator[1];
+        holder[0] = new DetectionAggregator((label, peakScore, timestampMs) -> {
+            // Otro hilo lee el estado mientras el listener sigue en curso
+            Thread reader = new Thread(() -> readerFinished[0] = holder[0].snapshot().get(label).emitted == 1);
+            reader.start();
+            try {
+                reader.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 5, 2, 0.6f, 0.5f, 0.25f, 0.4f, 60_000L);
+
+        for (int i = 0; i < 3; i++) {
+            holder[0].onScore("siren", 0.9f, i * 1000L);
+        }
+
+        assertTrue(readerFinished[0]);
+    }
+
+    @Test
+    public void singleSpikeIsIgnored() {
+        aggregator.onScore("gun_shot", 0.9f, 0);
+        aggregator.decayOthers(null, 1000);
+        aggregator.decayOthers(null, 2000);
+
+        assertTrue(incidents.isEmpty());
+    }
+
+    @Test
+    public void incidentCarriesPeakOfOpeningWindows() {
+        List<Float> peaks = new ArrayList<>();
+        DetectionAggregator withPeaks = new DetectionAggregator(
+                (label, peakScore, timestampMs) -> peaks.add(peakScore),
+                5, 2, 0.6f, 0.5f, 0.25f, 0.4f, 60_000L);
+        withPeaks.onScore("gun_shot", 0.95f, 0);
+        withPeaks.onScore("gun_shot", 0.7f, 1000);
+
+        assertEquals(Collections.singletonList(0.95f), peaks);
+    }
+
+    @Test
+    public void newIncidentOnlyAfterCooldown() {
+        aggregator.applyCooldowns(DetectionConfig.fromValues(
+                Collections.singletonMap(DetectionConfig.cooldownKey("screams"), 10_000L)));
+        long t = 1;
+        for (int incident = 0; incident < 3; incident++) {
+            for (int i = 0; i < 3; i++) {
+                aggregator.onScore("screams", 0.9f, t);
+                t += 1000;
+            }
+            for (int i = 0; i < 6; i++) {
+                aggregator.decayOthers(null, t);
+                t += 1000;
+            }
+        }
+
+        // Incidentes a ~1 s, ~10 s (suprimido por enfriamiento) y ~19 s
+        assertEquals(2, incidents.size());
+        assertEquals(1, aggregator.snapshot().get("screams").suppressed);
+    }
+
+    @Test
+    public void checkpointedCooldownSurvivesRestart() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            aggregator.onScore("gun_shot", 0.9f, 1000L + i * 1000L);
+        }
+        assertEquals(1, incidents.size());
+
+        File file = File.createTempFile("motor", ".ckpt");
+        file.deleteOnExit();
+        new EngineCheckpoint(5000L, aggregator.lastEmissions(), 1).writeTo(file);
+        EngineCheckpoint restored = EngineCheckpoint.readFrom(file);
+        assertNotNull(restored);
+
+        // Un motor nuevo con el estado restaurado no repite la alerta dentro del enfriamiento
+        DetectionAggregator afterRestart = new DetectionAggregator(
+                (label, peakScore, timestampMs) -> incidents.add(label + "@" + timestampMs),
+                5, 2, 0.6f, 0.5f, 0.25f, 0.4f, 60_000L);
+        afterRestart.restoreEmissions(restored.lastEmissions);
+        for (int i = 0; i < 3; i++) {
+            afterRestart.onScore("gun_shot", 0.9f, 10_000L + i * 1000L);
+        }
+        assertEquals(1, incidents.size());
+        assertEquals(1, afterRestart.snapshot().get("gun_shot").suppressed);
+    }
+}
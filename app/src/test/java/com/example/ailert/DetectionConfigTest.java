@@ -0,0 +1,43 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DetectionConfigTest {
+
+    @Test
+    public void unconfiguredSoundsAreAllEnabled() {
+        DetectionConfig config = DetectionConfig.fromValues(new HashMap<String, Object>());
+
+        for (int i = 0; i < DangerLabels.LABELS.length; i++) {
+            assertTrue(config.isEnabled(i));
+            assertEquals(DetectionConfig.DEFAULT_THRESHOLD, config.getThreshold(i), 0f);
+        }
+        assertEquals(EmergencyData.DEFAULT_MESSAGE, config.getEmergencyData().baseMessage);
+    }
+
+    @Test
+    public void readsCheckboxesThresholdsAndContact() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("sound_balas", true);
+        values.put("sound_gritos", false);
+        values.put("sound_sirenas", true);
+        values.put("umbral_siren", 0.7f);
+        values.put("contacto_numero", "+52 (55) 1234-5678");
+        values.put("ubicacion_max_edad_ms", 30_000L);
+        values.put("enfriamiento_siren", 5_000L);
+
+        DetectionConfig config = DetectionConfig.fromValues(values);
+
+        assertEquals(0b10001, config.getEnabledMask());
+        assertEquals(0.7f, config.getThreshold(4), 0f);
+        assertEquals("+525512345678", config.getEmergencyData().primaryNumber());
+        assertEquals(30_000L, config.getLocationMaxAgeMs());
+        assertEquals(5_000L, config.getCooldownMs(4));
+        assertEquals(DetectionConfig.DEFAULT_COOLDOWN_MS, config.getCooldownMs(0));
+    }
+}
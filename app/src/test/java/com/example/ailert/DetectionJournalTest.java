@@ -0,0 +1,142 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectionJournalTest {
+
+    private static final long DAY_MS = 24 * 60 * 60_000L;
+
+    private static File tempDir() throws IOException {
+        return Files.createTempDirectory("diario").toFile();
+    }
+
+    private static int count(DetectionJournal journal, byte type) {
+        DetectionJournal.Scanner scanner = journal.scan();
+        int found = 0;
+        DetectionJournal.Record record;
+        while ((record = scanner.next()) != null) {
+            if (type == 0 || record.type == type) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static void runAll(List<Runnable> queued) {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void recordsAreReadBackInOrder() throws IOException {
+        DetectionJournal journal = new DetectionJournal(tempDir(), 1 << 20, 30 * DAY_MS, Runnable::run);
+        journal.recordClassification("Speech", 0.8f, 1000);
+        journal.recordIncident("gun_shot", 0.93f, 2000);
+        journal.recordAlert("gun_shot", DetectionJournal.ALERT_QUEUED, 2, 2001);
+        journal.recordSms(7, "+525512345678", 3, 2500);
+
+        DetectionJournal.Scanner scanner = journal.scan();
+        DetectionJournal.Record record = scanner.next();
+        assertEquals(DetectionJournal.TYPE_CLASSIFICATION, record.type);
+        assertEquals("Speech", record.getText());
+        assertEquals(0.8f, record.score, 1e-6f);
+        assertEquals(DetectionJournal.TYPE_INCIDENT, scanner.next().type);
+        assertEquals(2, scanner.next().value);
+        record = scanner.next();
+        assertEquals("+525512345678", record.getText());
+        assertEquals(7, record.value);
+        assertEquals(3, record.status);
+        assertNull(scanner.next());
+    }
+
+    @Test
+    public void rollsSegmentsAndPrunesBySize() throws IOException {
+        File dir = tempDir();
+        // Dos segmentos como máximo
+        DetectionJournal journal = new DetectionJournal(dir, 2L * DetectionJournal.SEGMENT_BYTES, 30 * DAY_MS, Runnable::run);
+        int total = DetectionJournal.RECORDS_PER_SEGMENT * 3 + 10;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < total; i++) {
+            journal.recordClassification("Speech", 0.5f, now + i);
+        }
+
+        assertEquals(total, journal.getRecordsWritten());
+        assertTrue(DetectionJournal.listSegments(dir).length <= 3);
+        // Se conservan los más recientes
+        DetectionJournal.Scanner scanner = journal.scan();
+        DetectionJournal.Record last = null;
+        DetectionJournal.Record record;
+        while ((record = scanner.next()) != null) {
+            last = record;
+        }
+        assertEquals(now + total - 1, last.timestampMs);
+        assertTrue(count(journal, (byte) 0) < total);
+    }
+
+    @Test
+    public void oldSegmentsKeepOnlyAlertRecords() throws IOException {
+        File dir = tempDir();
+        DetectionJournal journal = new DetectionJournal(dir, 1 << 20, 30 * DAY_MS, Runnable::run);
+        long start = System.currentTimeMillis() - 2 * DAY_MS;
+        for (int i = 0; i < DetectionJournal.RECORDS_PER_SEGMENT - 2; i++) {
+            journal.recordClassification("Speech", 0.5f, start + i);
+        }
+        journal.recordIncident("siren", 0.9f, start + 5000);
+        journal.recordSms(1, "5512345678", 2, start + 6000);
+        // Llena el primer segmento: al abrir el segundo se compacta el anterior
+        journal.recordClassification("Music", 0.4f, System.currentTimeMillis());
+
+        assertEquals(1, count(journal, DetectionJournal.TYPE_CLASSIFICATION));
+        assertEquals(1, count(journal, DetectionJournal.TYPE_INCIDENT));
+        assertEquals(1, count(journal, DetectionJournal.TYPE_SMS));
+    }
+
+    @Test
+    public void segmentsOlderThanMaxAgeAreDeleted() throws IOException {
+        File dir = tempDir();
+        DetectionJournal journal = new DetectionJournal(dir, 1 << 20, 7 * DAY_MS, Runnable::run);
+        long start = System.currentTimeMillis() - 8 * DAY_MS;
+        for (int i = 0; i < DetectionJournal.RECORDS_PER_SEGMENT; i++) {
+            journal.recordIncident("siren", 0.9f, start + i);
+        }
+        journal.recordIncident("siren", 0.9f, System.currentTimeMillis());
+
+        assertEquals(1, count(journal, (byte) 0));
+    }
+
+    @Test
+    public void rollsInOrderEvenWhenMaintenanceFallsBehind() throws IOException {
+        File dir = tempDir();
+        List<Runnable> queued = new ArrayList<>();
+        DetectionJournal journal = new DetectionJournal(dir, 1 << 20, 30 * DAY_MS, queued::add);
+        long now = System.currentTimeMillis();
+        int total = DetectionJournal.RECORDS_PER_SEGMENT * 2 + 5;
+        for (int i = 0; i < total; i++) {
+            journal.recordIncident("siren", 0.9f, now + i);
+            if (i == DetectionJournal.RECORDS_PER_SEGMENT + 3) {
+                // El primer cambio de segmento no encontró uno preparado; ahora se pone al día
+                runAll(queued);
+            }
+        }
+        runAll(queued);
+
+        DetectionJournal.Scanner scanner = journal.scan();
+        DetectionJournal.Record record;
+        long expected = now;
+        while ((record = scanner.next()) != null) {
+            assertEquals(expected++, record.timestampMs);
+        }
+        assertEquals(now + total, expected);
+    }
+}
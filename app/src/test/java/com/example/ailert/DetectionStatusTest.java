@@ -0,0 +1,48 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DetectionStatusTest {
+
+    @Test
+    public void versionAdvancesWithEachPublication() {
+        DetectionStatus status = new DetectionStatus();
+        DetectionStatus.Sample sample = new DetectionStatus.Sample();
+        assertFalse(status.copyTo(sample));
+
+        status.publish("speech", 0.7f, 1000);
+        status.publish("siren", 0.9f, 2000);
+
+        assertTrue(status.copyTo(sample));
+        assertEquals(2, status.getVersion());
+        assertEquals(2, sample.version);
+        assertEquals("siren", sample.label);
+        assertEquals(0.9f, sample.score, 0f);
+        assertEquals(2000, sample.timestampMs);
+    }
+
+    @Test
+    public void readerNeverSeesMixedWindows() throws InterruptedException {
+        DetectionStatus status = new DetectionStatus();
+        String[] labels = {"a", "b"};
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                // Etiqueta, puntaje e instante siempre coherentes entre sí
+                status.publish(labels[i & 1], i & 1, i);
+            }
+        });
+        writer.start();
+
+        DetectionStatus.Sample sample = new DetectionStatus.Sample();
+        while (writer.isAlive()) {
+            if (status.copyTo(sample)) {
+                int parity = (int) (sample.timestampMs & 1);
+                assertEquals(labels[parity], sample.label);
+                assertEquals(parity, sample.score, 0f);
+            }
+        }
+        writer.join();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EmergencyContactTest {
+
+    @Test
+    public void encodedListKeepsOrderAndNormalizesNumbers() {
+        List<EmergencyContact> contacts = new ArrayList<>();
+        contacts = EmergencyContact.append(contacts, new EmergencyContact("Ana", "+52 (55) 1234-5678"));
+        contacts = EmergencyContact.append(contacts, new EmergencyContact("Luis", "55 8765 4321"));
+
+        List<EmergencyContact> decoded = EmergencyContact.decode(EmergencyContact.encode(contacts));
+        assertEquals(2, decoded.size());
+        assertEquals("Ana", decoded.get(0).name);
+        assertEquals("+525512345678", decoded.get(0).number);
+        assertEquals("5587654321", decoded.get(1).number);
+    }
+
+    @Test
+    public void appendIgnoresDuplicatesAndRespectsLimit() {
+        List<EmergencyContact> contacts = new ArrayList<>();
+        for (int i = 0; i < EmergencyContact.MAX_CONTACTS + 2; i++) {
+            contacts = EmergencyContact.append(contacts, new EmergencyContact("c" + i, "55000000" + i));
+        }
+        assertEquals(EmergencyContact.MAX_CONTACTS, contacts.size());
+
+        List<EmergencyContact> same = EmergencyContact.append(contacts, new EmergencyContact("otro", "550000000"));
+        assertEquals(contacts.size(), same.size());
+    }
+
+    @Test
+    public void fallsBackToSingleLegacyContact() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("contacto_numero", "55 1111 2222");
+        EmergencyData data = EmergencyData.fromValues(values);
+
+        assertEquals(1, data.contacts.size());
+        assertEquals("5511112222", data.primaryNumber());
+        assertTrue(data.isComplete());
+
+        values.put("contactos", "");
+        assertFalse(EmergencyData.fromValues(values).isComplete());
+    }
+}
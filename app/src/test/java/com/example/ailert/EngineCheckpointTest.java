@@ -0,0 +1,78 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EngineCheckpointTest {
+
+    private static File checkpointFile() throws Exception {
+        return new File(Files.createTempDirectory("motor").toFile(), "motor.ckpt");
+    }
+
+    @Test
+    public void roundTripKeepsEmissionsAndPendingAlerts() throws Exception {
+        File file = checkpointFile();
+        Map<String, Long> emissions = new HashMap<>();
+        emissions.put("gun_shot", 1_000L);
+        emissions.put("siren", 42_000L);
+
+        new EngineCheckpoint(50_000L, emissions, 3).writeTo(file);
+        EngineCheckpoint restored = EngineCheckpoint.readFrom(file);
+
+        assertNotNull(restored);
+        assertEquals(50_000L, restored.savedAtMs);
+        assertEquals(3, restored.pendingAlerts);
+        assertEquals(emissions, restored.lastEmissions);
+        // Sólo queda el archivo confirmado, sin el temporal
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void newerCheckpointReplacesTheOldOne() throws Exception {
+        File file = checkpointFile();
+        Map<String, Long> emissions = new HashMap<>();
+        emissions.put("screams", 1_000L);
+        new EngineCheckpoint(1_000L, emissions, 1).writeTo(file);
+
+        emissions.put("screams", 9_000L);
+        new EngineCheckpoint(9_000L, emissions, 0).writeTo(file);
+
+        EngineCheckpoint restored = EngineCheckpoint.readFrom(file);
+        assertNotNull(restored);
+        assertEquals(0, restored.pendingAlerts);
+        assertEquals(Long.valueOf(9_000L), restored.lastEmissions.get("screams"));
+    }
+
+    @Test
+    public void missingFileReadsAsNull() throws Exception {
+        assertNull(EngineCheckpoint.readFrom(checkpointFile()));
+    }
+
+    @Test
+    public void foreignOrTruncatedFileReadsAsNull() throws Exception {
+        File foreign = checkpointFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(foreign))) {
+            out.writeInt(0x12345678);
+            out.writeLong(0L);
+        }
+        assertNull(EngineCheckpoint.readFrom(foreign));
+
+        File truncated = checkpointFile();
+        Map<String, Long> emissions = new HashMap<>();
+        emissions.put("glass_breaking", 7_000L);
+        new EngineCheckpoint(7_000L, emissions, 0).writeTo(truncated);
+        try (RandomAccessFile raf = new RandomAccessFile(truncated, "rw")) {
+            raf.setLength(raf.length() - 4);
+        }
+        assertNull(EngineCheckpoint.readFrom(truncated));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EvidenceRecorderTest {
+
+    private static final int RATE = 1000;
+
+    private static File tempDir() throws IOException {
+        return Files.createTempDirectory("evidencia").toFile();
+    }
+
+    /** Bloques de 100 muestras con el valor de su índice, para reconocer el orden. */
+    private static void feed(EvidenceRecorder recorder, int fromBlock, int blocks) {
+        float[] chunk = new float[100];
+        for (int b = fromBlock; b < fromBlock + blocks; b++) {
+            Arrays.fill(chunk, b / 100f);
+            recorder.write(chunk, 0, chunk.length);
+        }
+    }
+
+    private static float[] read(File clip) throws IOException {
+        try (WavFileSource source = WavFileSource.wav(new FileInputStream(clip))) {
+            assertEquals(RATE, source.getSampleRate());
+            float[] samples = new float[10_000];
+            int total = 0;
+            int read;
+            while ((read = source.read(samples, total, samples.length - total)) > 0) {
+                total += read;
+            }
+            return Arrays.copyOf(samples, total);
+        }
+    }
+
+    @Test
+    public void clipHoldsPreRollAndPostRoll() throws IOException {
+        File dir = tempDir();
+        EvidenceRecorder recorder = new EvidenceRecorder(RATE, 500, 300, dir, 1 << 20, Runnable::run, null);
+        feed(recorder, 0, 10);
+        recorder.trigger("gun_shot", 1234);
+        feed(recorder, 10, 5);
+
+        File[] clips = EvidenceRecorder.listClips(dir);
+        assertEquals(1, clips.length);
+        assertEquals("1234-gun_shot.wav", clips[0].getName());
+        float[] samples = read(clips[0]);
+        // 500 ms antes (bloques 5 a 9) y 300 ms después (bloques 10 a 12)
+        assertEquals(800, samples.length);
+        assertEquals(0.05f, samples[0], 1e-3f);
+        assertEquals(0.09f, samples[499], 1e-3f);
+        assertEquals(0.10f, samples[500], 1e-3f);
+        assertEquals(0.12f, samples[799], 1e-3f);
+    }
+
+    @Test
+    public void busyIoDropsClipsInsteadOfBlocking() throws IOException {
+        List<Runnable> queued = new ArrayList<>();
+        EvidenceRecorder recorder = new EvidenceRecorder(RATE, 100, 100, tempDir(), 1 << 20, queued::add, null);
+        for (int i = 0; i < 3; i++) {
+            recorder.trigger("siren", i);
+            feed(recorder, 0, 2);
+        }
+
+        assertEquals(2, queued.size());
+        assertEquals(1, recorder.getClipsDropped());
+
+        queued.get(0).run();
+        recorder.trigger("siren", 10);
+        feed(recorder, 0, 2);
+        assertEquals(3, queued.size());
+    }
+
+    @Test
+    public void oldestClipsAreDeletedOverTheCap() throws IOException {
+        File dir = tempDir();
+        // Cada clip de 1000 muestras ocupa unos 2 KB
+        EvidenceRecorder recorder = new EvidenceRecorder(RATE, 1000, 0, dir, 2500, Runnable::run, null);
+        Random random = new Random(1);
+        float[] noise = new float[1000];
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < noise.length; j++) {
+                noise[j] = random.nextFloat() - 0.5f;
+            }
+            recorder.write(noise, 0, noise.length);
+            recorder.trigger("screams", 1000L * (i + 1));
+            recorder.write(noise, 0, 1);
+        }
+
+        File[] clips = EvidenceRecorder.listClips(dir);
+        assertEquals(4, recorder.getClipsSaved());
+        assertTrue(clips.length < 4);
+        assertTrue(clips[clips.length - 1].getName().startsWith("4000-"));
+    }
+}
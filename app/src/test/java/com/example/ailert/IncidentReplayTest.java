@@ -0,0 +1,186 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IncidentReplayTest {
+
+    private static final int RATE = 16000;
+    private static final int WINDOW = 15600;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /** Sustituye al modelo: una ventana con un tono fuerte cercano a 1 kHz es una sirena. */
+    private static final SoundClassifier TONE_CLASSIFIER = new SoundClassifier() {
+        @Override
+        public List<String> getLabels() {
+            return Arrays.asList("speech", "siren");
+        }
+
+        @Override
+        public void classify(float[] window, float[] scores) {
+            int crossings = 0;
+            float energy = 0;
+            for (int i = 1; i < window.length; i++) {
+                if ((window[i - 1] < 0) != (window[i] < 0)) {
+                    crossings++;
+                }
+                energy += window[i] * window[i];
+            }
+            float rms = (float) Math.sqrt(energy / window.length);
+            float hz = crossings * RATE / (2f * window.length);
+            boolean siren = rms > 0.1f && hz > 800 && hz < 1200;
+            scores[0] = 0.6f;
+            scores[1] = siren ? 0.9f : 0.05f;
+        }
+    };
+
+    private static IncidentReplay.Report replay(AudioSource source) throws IOException {
+        return IncidentReplay.run(source, WINDOW, TONE_CLASSIFIER, new SoundActivityGate(), DetectionConfig.defaults(),
+                THREADS::getCurrentThreadCpuTime);
+    }
+
+    @Test
+    public void detectsSirenFasterThanRealTime() throws IOException {
+        SyntheticSource source = new SyntheticSource(RATE, 60_000, 0.01f, 7)
+                .addTone(20_000, 10_000, 1000f, 0.5f);
+
+        IncidentReplay.Report report = replay(source);
+
+        assertEquals(60_000, report.audioMs, 1);
+        IncidentReplay.Event siren = report.firstEvent("siren");
+        assertNotNull(report.toString(), siren);
+        assertTrue("latencia " + (siren.audioTimeMs - 20_000), siren.audioTimeMs - 20_000 < 5_000);
+        assertEquals(1, report.events.size());
+        assertTrue(report.toString(), report.realTimeFactor() < 1.0);
+    }
+
+    @Test
+    public void overlappingBatchedReplayMatchesOneWindowPerCall() throws IOException {
+        IncidentReplay.Report single = IncidentReplay.run(
+                new SyntheticSource(RATE, 30_000, 0.01f, 5).addTone(12_000, 6_000, 1000f, 0.5f),
+                WINDOW, WINDOW / 2, 1, TONE_CLASSIFIER, new SoundActivityGate(), DetectionConfig.defaults(),
+                THREADS::getCurrentThreadCpuTime);
+        IncidentReplay.Report batched = IncidentReplay.run(
+                new SyntheticSource(RATE, 30_000, 0.01f, 5).addTone(12_000, 6_000, 1000f, 0.5f),
+                WINDOW, WINDOW / 2, DetectionPipeline.MAX_BATCH, TONE_CLASSIFIER, new SoundActivityGate(),
+                DetectionConfig.defaults(), THREADS::getCurrentThreadCpuTime);
+
+        // Con 50 % de solape hay casi el doble de ventanas que sin solape
+        assertTrue(single.toString(), single.windows >= 2 * (30_000 * RATE / 1000 / WINDOW) - 1);
+        assertEquals(single.windows, batched.windows);
+        assertEquals(single.events.size(), batched.events.size());
+        assertNotNull(batched.firstEvent("siren"));
+        assertEquals(single.firstEvent("siren").audioTimeMs, batched.firstEvent("siren").audioTimeMs);
+    }
+
+    @Test
+    public void featureModelReceivesLogMelFrames() throws IOException {
+        final int frames = 96;
+        final int melBins = 64;
+        final int[] inputs = new int[2];
+        SoundClassifier featureClassifier = new SoundClassifier() {
+            @Override
+            public List<String> getLabels() {
+                return Arrays.asList("speech", "siren");
+            }
+
+            @Override
+            public int getFeatureFrames() {
+                return frames;
+            }
+
+            @Override
+            public int getMelBins() {
+                return melBins;
+            }
+
+            @Override
+            public void classify(float[] window, float[] scores) {
+                inputs[window.length == frames * melBins ? 0 : 1]++;
+                scores[0] = 0.6f;
+                scores[1] = 0.05f;
+            }
+        };
+        int windowSize = new LogMelStream(RATE, melBins, 1).samplesFor(frames);
+
+        IncidentReplay.Report report = IncidentReplay.run(
+                new SyntheticSource(RATE, 10_000, 0.01f, 9).addTone(2_000, 6_000, 1000f, 0.5f),
+                windowSize, windowSize / 2, DetectionPipeline.MAX_BATCH, featureClassifier, new SoundActivityGate(),
+                DetectionConfig.defaults(), THREADS::getCurrentThreadCpuTime);
+
+        assertTrue(report.toString(), report.windowsClassified > 0);
+        assertEquals(report.windowsClassified, inputs[0]);
+        assertEquals(0, inputs[1]);
+    }
+
+    @Test
+    public void quietAudioProducesNoIncidents() throws IOException {
+        IncidentReplay.Report report = replay(new SyntheticSource(RATE, 30_000, 0.01f, 3));
+
+        assertTrue(report.events.isEmpty());
+        assertTrue(report.windows > 0);
+    }
+
+    @Test
+    public void wavReplayMatchesGeneratedAudio() throws IOException {
+        byte[] wav = toWav(new SyntheticSource(RATE, 40_000, 0.01f, 11).addTone(10_000, 8_000, 1000f, 0.5f), 40_000);
+
+        IncidentReplay.Report report = replay(WavFileSource.wav(new ByteArrayInputStream(wav)));
+
+        assertEquals(40_000, report.audioMs, 1);
+        assertNotNull(report.firstEvent("siren"));
+    }
+
+    private static byte[] toWav(AudioSource source, long durationMs) throws IOException {
+        int samples = (int) (durationMs * RATE / 1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(44 + samples * 2);
+        writeTag(out, "RIFF");
+        writeIntLe(out, 36 + samples * 2);
+        writeTag(out, "WAVE");
+        writeTag(out, "fmt ");
+        writeIntLe(out, 16);
+        writeShortLe(out, 1);
+        writeShortLe(out, 1);
+        writeIntLe(out, RATE);
+        writeIntLe(out, RATE * 2);
+        writeShortLe(out, 2);
+        writeShortLe(out, 16);
+        writeTag(out, "data");
+        writeIntLe(out, samples * 2);
+
+        float[] buffer = new float[1024];
+        int read;
+        while ((read = source.read(buffer, 0, buffer.length)) > 0) {
+            for (int i = 0; i < read; i++) {
+                writeShortLe(out, PcmConverter.toPcm16(buffer[i]));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, String tag) {
+        for (int i = 0; i < 4; i++) {
+            out.write(tag.charAt(i));
+        }
+    }
+
+    private static void writeIntLe(ByteArrayOutputStream out, int value) {
+        writeShortLe(out, value);
+        writeShortLe(out, value >> 16);
+    }
+
+    private static void writeShortLe(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LabelDecisionTest {
+
+    private final LabelDecision decision = new LabelDecision(
+            Arrays.asList("speech", "gun_shot", "music", "siren"), 0.3f);
+
+    @Test
+    public void dangerousLabelInSecondPlaceIsNotHidden() {
+        int danger = decision.evaluate(new float[]{0.7f, 0.1f, 0.2f, 0.45f});
+
+        assertEquals(0, decision.getTopIndex());
+        assertEquals(3, danger);
+        assertEquals("siren", decision.label(danger));
+    }
+
+    @Test
+    public void perLabelThresholdsApply() {
+        assertTrue(decision.setThreshold("siren", 0.5f));
+        assertFalse(decision.setThreshold("screams", 0.5f));
+
+        assertEquals(-1, decision.evaluate(new float[]{0.7f, 0.1f, 0.2f, 0.45f}));
+        assertEquals(1, decision.evaluate(new float[]{0.2f, 0.35f, 0.1f, 0.45f}));
+    }
+
+    @Test
+    public void maskCoversMoreThan64Labels() {
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            labels.add(i == 70 ? "glass_breaking" : "otro_" + i);
+        }
+        LabelDecision wide = new LabelDecision(labels, 0.3f);
+        float[] scores = new float[130];
+        scores[6] = 0.9f;
+        scores[70] = 0.5f;
+
+        assertFalse(wide.isDangerous(6));
+        assertTrue(wide.isDangerous(70));
+        assertEquals(70, wide.evaluate(scores));
+        assertEquals(6, wide.getTopIndex());
+    }
+
+    @Test
+    public void disabledLabelsAreIgnored() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("sound_balas", true);
+        values.put("sound_sirenas", false);
+        decision.apply(DetectionConfig.fromValues(values));
+
+        assertEquals(-1, decision.evaluate(new float[]{0.1f, 0.1f, 0.1f, 0.9f}));
+        assertEquals(1, decision.evaluate(new float[]{0.1f, 0.5f, 0.1f, 0.9f}));
+        assertEquals(3, decision.getTopIndex());
+    }
+}
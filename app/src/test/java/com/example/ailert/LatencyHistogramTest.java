@@ -0,0 +1,55 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesFallInTheRightBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.recordMicros(3_000);
+        }
+        histogram.recordMicros(40_000);
+        histogram.recordMicros(700_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5_000, histogram.percentileMicros(0.50));
+        assertEquals(50_000, histogram.percentileMicros(0.99));
+        assertEquals(700_000, histogram.percentileMicros(1.0));
+        assertEquals(700_000, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void percentileNeverExceedsMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(1_100);
+
+        assertEquals(1_100, histogram.percentileMicros(0.99));
+    }
+
+    @Test
+    public void boundsAreInclusiveAndOverflowIsKept() {
+        assertEquals(0, LatencyHistogram.bucketFor(10));
+        assertEquals(1, LatencyHistogram.bucketFor(11));
+        assertEquals(LatencyHistogram.BOUNDS_US.length, LatencyHistogram.bucketFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void exportsOneRowPerStage() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.Stage.CLASSIFY, 12_000_000);
+        StringWriter out = new StringWriter();
+        metrics.writeCsv(out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2 + PipelineMetrics.Stage.values().length, lines.length);
+        assertTrue(out.toString(), out.toString().contains("CLASSIFY,1,12000,"));
+        assertTrue(metrics.summary(), metrics.summary().startsWith("clasificación: p50 12.0 ms"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LocationSamplingPolicyTest {
+
+    private static class FakeProvider implements LocationSamplingPolicy.Provider {
+        final List<LocationSamplingPolicy.Tier> requests = new ArrayList<>();
+        boolean removed;
+
+        @Override
+        public void requestUpdates(LocationSamplingPolicy.Tier tier) {
+            requests.add(tier);
+        }
+
+        @Override
+        public void removeUpdates() {
+            removed = true;
+        }
+    }
+
+    private final FakeProvider provider = new FakeProvider();
+    private final LocationSamplingPolicy policy = new LocationSamplingPolicy(provider, 0.4f, 60_000L, 120_000L);
+
+    @Test
+    public void idleFixesStayFresherThanTheAlertMaxAge() {
+        // Dos lecturas por cada antigüedad máxima: la alerta no depende de un GPS en frío
+        assertTrue(LocationSamplingPolicy.Tier.IDLE.intervalMs * 2 <= DetectionConfig.DEFAULT_LOCATION_MAX_AGE_MS);
+        assertFalse(LocationSamplingPolicy.Tier.IDLE.highAccuracy);
+    }
+
+    @Test
+    public void startsInLowPowerMode() {
+        policy.start(0);
+
+        assertEquals(LocationSamplingPolicy.Tier.IDLE, policy.getTier());
+        assertEquals(-1, policy.tick(10_000));
+        assertEquals(0, policy.getRadioOnMs(10_000));
+    }
+
+    @Test
+    public void escalatesOnSuspicionAndDecaysStepByStep() {
+        policy.start(0);
+        policy.onSuspicion(0.2f, 1_000);
+        assertEquals(LocationSamplingPolicy.Tier.IDLE, policy.getTier());
+
+        policy.onSuspicion(0.7f, 10_000);
+        assertEquals(LocationSamplingPolicy.Tier.ALERT, policy.getTier());
+        assertEquals(60_000, policy.tick(10_000));
+
+        policy.tick(70_000);
+        assertEquals(LocationSamplingPolicy.Tier.COOLDOWN, policy.getTier());
+
+        policy.tick(190_000);
+        assertEquals(LocationSamplingPolicy.Tier.IDLE, policy.getTier());
+        assertEquals(60_000, policy.getRadioOnMs(190_000));
+        assertEquals(4, provider.requests.size());
+    }
+
+    @Test
+    public void repeatedSuspicionExtendsAlertWithoutNewRequests() {
+        policy.start(0);
+        policy.onSuspicion(0.9f, 0);
+        policy.onSuspicion(0.9f, 50_000);
+        policy.tick(100_000);
+
+        assertEquals(LocationSamplingPolicy.Tier.ALERT, policy.getTier());
+        assertEquals(1, policy.getEscalations());
+        assertEquals(2, provider.requests.size());
+
+        policy.stop(120_000);
+        assertTrue(provider.removed);
+        assertEquals(120_000, policy.getRadioOnMs(120_000));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LocationTrailTest {
+
+    // Aproximadamente 111 m por milésima de grado de latitud
+    private static final double STEP = 0.001;
+
+    @Test
+    public void keepsOnlyTheLastFixes() {
+        LocationTrail trail = new LocationTrail(4);
+        for (int i = 0; i < 10; i++) {
+            trail.add(19.0 + i * STEP, -99.0, 5f, i * 1000L);
+        }
+
+        assertEquals(4, trail.size());
+        assertEquals(3 * 111.2, trail.distanceSince(0), 1.0);
+    }
+
+    @Test
+    public void describesHeadingAndDistanceInWindow() {
+        LocationTrail trail = new LocationTrail(16);
+        trail.add(19.0, -99.0, 5f, 0);
+        for (int i = 0; i < 5; i++) {
+            trail.add(19.0 + i * STEP, -99.0, 5f, 600_000L + i * 60_000L);
+        }
+
+        String summary = trail.describeMovement(840_000L, 5 * 60_000L);
+        assertNotNull(summary);
+        assertTrue(summary, summary.contains("445 m"));
+        assertTrue(summary, summary.contains(", N,"));
+    }
+
+    @Test
+    public void noSummaryWithoutMovementData() {
+        LocationTrail trail = new LocationTrail(8);
+        trail.add(19.0, -99.0, 5f, 0);
+
+        assertNull(trail.describeMovement(1000, 60_000));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LogMelStreamTest {
+
+    private static final int RATE = 16000;
+    private static final int MEL = LogMelStream.DEFAULT_MEL_BINS;
+
+    private static float[] tone(int samples, float hz) {
+        float[] out = new float[samples];
+        for (int i = 0; i < samples; i++) {
+            out[i] = 0.5f * (float) Math.sin(2 * Math.PI * hz * i / RATE);
+        }
+        return out;
+    }
+
+    @Test
+    public void oneFramePerHop() {
+        LogMelStream stream = new LogMelStream(RATE, MEL, 96);
+        stream.push(new float[RATE], 0, RATE);
+
+        // 25 ms de trama y 10 ms de salto: (16000 - 400) / 160 + 1
+        assertEquals(98, stream.getFramesComputed());
+        assertEquals(RATE * 96 / 100 + 240, stream.samplesFor(96));
+    }
+
+    @Test
+    public void incrementalFramesMatchOneShot() {
+        float[] audio = tone(8000, 1000f);
+        LogMelStream oneShot = new LogMelStream(RATE, MEL, 32);
+        oneShot.push(audio, 0, audio.length);
+
+        LogMelStream incremental = new LogMelStream(RATE, MEL, 32);
+        for (int offset = 0; offset < audio.length; offset += 777) {
+            incremental.push(audio, offset, Math.min(777, audio.length - offset));
+        }
+
+        float[] expected = new float[32 * MEL];
+        float[] actual = new float[32 * MEL];
+        assertEquals(32, oneShot.copyLatest(32, expected));
+        assertEquals(32, incremental.copyLatest(32, actual));
+        assertArrayEquals(expected, actual, 1e-5f);
+    }
+
+    @Test
+    public void toneEnergyLandsInItsMelBand() {
+        LogMelStream stream = new LogMelStream(RATE, MEL, 4);
+        float[] audio = tone(2000, 1000f);
+        stream.push(audio, 0, audio.length);
+
+        float[] frame = new float[MEL];
+        stream.copyLatest(1, frame);
+        int peak = 0;
+        for (int m = 1; m < MEL; m++) {
+            if (frame[m] > frame[peak]) {
+                peak = m;
+            }
+        }
+        // Con 64 bandas entre 125 y 7500 Hz, 1 kHz cae en torno a la banda 20
+        assertTrue("banda " + peak, peak >= 17 && peak <= 23);
+    }
+
+    @Test
+    public void missingFramesArePaddedWithSilence() {
+        LogMelStream stream = new LogMelStream(RATE, MEL, 8);
+        stream.push(tone(400, 500f), 0, 400);
+
+        float[] patch = new float[3 * MEL];
+        assertEquals(1, stream.copyLatest(3, patch));
+        assertEquals((float) Math.log(0.001), patch[0], 1e-6f);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OutboxStoreTest {
+
+    private static OutboxStore newStore() throws IOException {
+        OutboxStore store = new OutboxStore(new File(Files.createTempDirectory("outbox").toFile(), "outbox"));
+        assertTrue(store.ensureDirectory());
+        return store;
+    }
+
+    @Test
+    public void roundTripKeepsAttemptsAndOrder() throws IOException {
+        OutboxStore store = newStore();
+        OutboxEntry second = new OutboxEntry(1700000000002L, "+525500000002", "Auxilio: disparo", 0);
+        OutboxEntry first = new OutboxEntry(1700000000001L, "+525500000001", "Auxilio: disparo", 0);
+        first.beginAttempt(2);
+        first.beginAttempt(2);
+        store.write(second);
+        store.write(first);
+
+        List<String> discarded = new ArrayList<>();
+        List<OutboxEntry> entries = store.readAll(discarded);
+
+        assertTrue(discarded.isEmpty());
+        assertEquals(2, entries.size());
+        assertEquals(first.id, entries.get(0).id);
+        assertEquals("+525500000001", entries.get(0).phoneNumber);
+        assertEquals("Auxilio: disparo", entries.get(0).message);
+        // Un reintento tras reiniciar sigue contando desde los intentos ya hechos
+        assertEquals(2, entries.get(0).getAttempts());
+        assertEquals(0, entries.get(1).getAttempts());
+    }
+
+    @Test
+    public void rewriteReplacesAndDeleteRemoves() throws IOException {
+        OutboxStore store = newStore();
+        OutboxEntry entry = new OutboxEntry(7, "5512345678", "hola", 0);
+        store.write(entry);
+        entry.beginAttempt(1);
+        store.write(entry);
+
+        assertEquals(1, store.count());
+        assertEquals(1, store.readAll(new ArrayList<>()).get(0).getAttempts());
+        assertTrue(store.delete(entry.id));
+        assertEquals(0, store.count());
+        assertTrue(store.delete(entry.id));
+    }
+
+    @Test
+    public void unreadableFilesAreDiscarded() throws IOException {
+        File dir = Files.createTempDirectory("outbox").toFile();
+        OutboxStore store = new OutboxStore(dir);
+        store.write(new OutboxEntry(1, "5512345678", "hola", 0));
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "2.msg"))) {
+            out.write(new byte[]{0, 0, 0});
+        }
+
+        List<String> discarded = new ArrayList<>();
+        List<OutboxEntry> entries = store.readAll(discarded);
+
+        assertEquals(1, entries.size());
+        assertEquals(1, discarded.size());
+        assertFalse(new File(dir, "2.msg").exists());
+    }
+
+    @Test
+    public void lateAcksFromAnEarlierAttemptAreIgnored() {
+        OutboxEntry entry = new OutboxEntry(1, "5512345678", "hola", 0);
+        int first = entry.beginAttempt(2);
+        assertTrue(entry.abandon(first));
+        assertFalse(entry.abandon(first));
+
+        int second = entry.beginAttempt(2);
+        // Acuses del intento abandonado que llegan tarde
+        assertFalse(entry.partSent(first));
+        assertFalse(entry.partDelivered(first));
+
+        assertFalse(entry.partSent(second));
+        assertTrue(entry.partSent(second));
+        assertFalse(entry.abandon(second));
+        assertFalse(entry.partDelivered(second));
+        assertTrue(entry.partDelivered(second));
+        assertFalse(entry.partDelivered(second));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PcmConverterTest {
+
+    @Test
+    public void shortsAndLittleEndianBytesGiveSameSamples() {
+        short[] pcm = {0, 16384, -32768, 32767, -1};
+        byte[] bytes = new byte[pcm.length * 2];
+        for (int i = 0; i < pcm.length; i++) {
+            bytes[2 * i] = (byte) pcm[i];
+            bytes[2 * i + 1] = (byte) (pcm[i] >> 8);
+        }
+
+        float[] fromShorts = new float[pcm.length];
+        float[] fromBytes = new float[pcm.length];
+        PcmConverter.toFloat(pcm, 0, fromShorts, 0, pcm.length);
+        PcmConverter.toFloat(bytes, 0, fromBytes, 0, pcm.length);
+
+        assertArrayEquals(fromShorts, fromBytes, 0f);
+        assertEquals(0.5f, fromShorts[1], 0f);
+        assertEquals(-1f, fromShorts[2], 0f);
+    }
+
+    @Test
+    public void toPcm16Saturates() {
+        assertEquals(Short.MAX_VALUE, PcmConverter.toPcm16(1.5f));
+        assertEquals(Short.MIN_VALUE, PcmConverter.toPcm16(-2f));
+        assertEquals(16384, PcmConverter.toPcm16(0.5f));
+    }
+}
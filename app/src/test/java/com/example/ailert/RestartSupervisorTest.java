@@ -0,0 +1,48 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RestartSupervisorTest {
+
+    @Test
+    public void delayDoublesUpToTheCap() {
+        RestartSupervisor supervisor = new RestartSupervisor(1_000, 5_000, 10, 60_000);
+        assertEquals(1_000, supervisor.nextDelayMs(0));
+        supervisor.recordRestart(0);
+        assertEquals(2_000, supervisor.nextDelayMs(0));
+        supervisor.recordRestart(1);
+        assertEquals(4_000, supervisor.nextDelayMs(1));
+        supervisor.recordRestart(2);
+        assertEquals(5_000, supervisor.nextDelayMs(2));
+    }
+
+    @Test
+    public void detectsCrashLoopOnlyWithinWindow() {
+        RestartSupervisor supervisor = new RestartSupervisor(1_000, 60_000, 3, 10_000);
+        supervisor.recordRestart(0);
+        supervisor.recordRestart(1_000);
+        assertFalse(supervisor.isCrashLooping(1_000));
+        supervisor.recordRestart(2_000);
+        assertTrue(supervisor.isCrashLooping(2_000));
+
+        // Los reinicios viejos salen de la ventana
+        assertFalse(supervisor.isCrashLooping(11_500));
+        assertEquals(1, supervisor.getRecentRestarts(11_500));
+    }
+
+    @Test
+    public void historySurvivesEncoding() {
+        RestartSupervisor supervisor = RestartSupervisor.withDefaults();
+        supervisor.recordRestart(100);
+        supervisor.recordRestart(200);
+
+        RestartSupervisor restored = RestartSupervisor.withDefaults();
+        restored.decode(supervisor.encode());
+        assertEquals(2, restored.getRecentRestarts(300));
+
+        restored.decode("12,basura,");
+        assertEquals(1, restored.getRecentRestarts(300));
+    }
+}
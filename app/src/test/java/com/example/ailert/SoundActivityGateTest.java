@@ -0,0 +1,59 @@
+package com.example.ailert;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SoundActivityGateTest {
+
+    private static float[] noise(Random random, int length, float amplitude) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (random.nextFloat() * 2f - 1f) * amplitude;
+        }
+        return samples;
+    }
+
+    @Test
+    public void skipsSteadyBackgroundNoise() {
+        SoundActivityGate gate = new SoundActivityGate(10f, 12f, 0);
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            gate.shouldClassify(noise(random, 1600, 0.01f), 0, 1600);
+        }
+
+        assertTrue(gate.getWindowsSkipped() >= 19);
+        assertTrue(gate.getSkipRatio() > 0.9f);
+    }
+
+    @Test
+    public void wakesOnLoudSoundAndKeepsHangover() {
+        SoundActivityGate gate = new SoundActivityGate(10f, 12f, 2);
+        Random random = new Random(2);
+        for (int i = 0; i < 10; i++) {
+            gate.shouldClassify(noise(random, 1600, 0.01f), 0, 1600);
+        }
+
+        assertTrue(gate.shouldClassify(noise(random, 1600, 0.5f), 0, 1600));
+        assertTrue(gate.shouldClassify(noise(random, 1600, 0.01f), 0, 1600));
+        assertTrue(gate.shouldClassify(noise(random, 1600, 0.01f), 0, 1600));
+        assertFalse(gate.shouldClassify(noise(random, 1600, 0.01f), 0, 1600));
+    }
+
+    @Test
+    public void wakesOnShortImpulse() {
+        SoundActivityGate gate = new SoundActivityGate(30f, 12f, 0);
+        Random random = new Random(3);
+        for (int i = 0; i < 10; i++) {
+            gate.shouldClassify(noise(random, 1600, 0.01f), 0, 1600);
+        }
+
+        float[] window = noise(random, 1600, 0.01f);
+        Arrays.fill(window, 800, 850, 0.9f);
+        assertTrue(gate.shouldClassify(window, 0, 1600));
+        assertTrue(gate.getLastFluxDb() > 12f);
+    }
+}
@@ -0,0 +1,46 @@
+// Microbenchmarks JMH de la ruta caliente de detección, en la JVM del equipo de desarrollo.
+// Solo compila las clases de app que no dependen de Android.
+// Ejecutar con: ./gradlew :benchmark:jmh
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/ailert/PcmConverter.java",
+                "com/example/ailert/DangerLabels.java",
+                "com/example/ailert/LabelDecision.java",
+                "com/example/ailert/DetectionConfig.java",
+                "com/example/ailert/CandidateDetector.java",
+                "com/example/ailert/AlertMessageBuilder.java",
+                "com/example/ailert/EmergencyData.java",
+                "com/example/ailert/EmergencyContact.java"
+            )
+        }
+    }
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // ops/s por benchmark y, con el perfilador gc, tasa de asignación (gc.alloc.rate.norm = bytes/op)
+    benchmarkMode.set(listOf("thrpt"))
+    timeUnit.set("s")
+    profilers.set(listOf("gc"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+}
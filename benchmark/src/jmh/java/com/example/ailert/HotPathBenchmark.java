@@ -0,0 +1,125 @@
+package com.example.ailert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Rendimiento (ops/s) y asignaciones de las partes de la ruta de detección que no tocan
+ * el intérprete: conversión de PCM, decisión de peligro sobre el vector de puntuaciones
+ * de cada ventana, armado del mensaje de alerta y construcción de la configuración a
+ * partir de las preferencias.
+ */
+@State(Scope.Thread)
+public class HotPathBenchmark {
+
+    // 0.975 s a 16 kHz, el tamaño de ventana del modelo YAMNet
+    private static final int WINDOW = 15600;
+
+    // Número de clases de YAMNet
+    private static final int MODEL_LABELS = 521;
+
+    private static final String[] LABELS = {
+            "speech", "gun_shot", "music", "screams", "dog", "glass_breaking", "silence", "siren"
+    };
+
+    private short[] pcm16;
+    private byte[] pcmBytes;
+    private float[] window;
+    private LabelDecision decision;
+    private float[][] scores;
+    private Map<String, Object> preferences;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        pcm16 = new short[WINDOW];
+        pcmBytes = new byte[WINDOW * 2];
+        for (int i = 0; i < WINDOW; i++) {
+            short sample = (short) (random.nextGaussian() * 3000);
+            pcm16[i] = sample;
+            pcmBytes[2 * i] = (byte) sample;
+            pcmBytes[2 * i + 1] = (byte) (sample >> 8);
+        }
+        window = new float[WINDOW];
+
+        // Vector del tamaño del modelo con las etiquetas peligrosas repartidas entre las demás
+        List<String> labels = new ArrayList<>(MODEL_LABELS);
+        for (int i = 0; i < MODEL_LABELS; i++) {
+            labels.add("clase_" + i);
+        }
+        for (int c = 0; c < DangerLabels.LABELS.length; c++) {
+            labels.set(37 + c * 97, DangerLabels.LABELS[c]);
+        }
+        decision = new LabelDecision(labels, DetectionConfig.DEFAULT_THRESHOLD);
+        // Ocho ventanas distintas para que la predicción de saltos no memorice una sola
+        scores = new float[8][MODEL_LABELS];
+        for (float[] row : scores) {
+            for (int i = 0; i < MODEL_LABELS; i++) {
+                row[i] = random.nextFloat() * 0.5f;
+            }
+        }
+
+        // Mismo mapa de claves que SharedPreferences.getAll(), sin el disco
+        preferences = new HashMap<>();
+        preferences.put("contactos", "Casa\t+52 (55) 1234-5678\nTrabajo\t+52 55 8765 4321");
+        preferences.put("mensaje_base", EmergencyData.DEFAULT_MESSAGE);
+        for (int i = 0; i < DangerLabels.LABELS.length; i++) {
+            preferences.put(DangerLabels.PREFERENCE_KEYS[i], i != 3);
+            preferences.put(DetectionConfig.thresholdKey(DangerLabels.LABELS[i]), 0.4f);
+            preferences.put(DetectionConfig.cooldownKey(DangerLabels.LABELS[i]), 90_000L);
+        }
+        preferences.put("ubicacion_max_edad_ms", 120_000L);
+        preferences.put("cascada_activa", true);
+        decision.apply(DetectionConfig.fromValues(preferences));
+    }
+
+    private String nextLabel() {
+        next = (next + 1) & 7;
+        return LABELS[next];
+    }
+
+    @Benchmark
+    public float[] pcm16ToFloat() {
+        PcmConverter.toFloat(pcm16, 0, window, 0, WINDOW);
+        return window;
+    }
+
+    @Benchmark
+    public float[] pcmBytesToFloat() {
+        PcmConverter.toFloat(pcmBytes, 0, window, 0, WINDOW);
+        return window;
+    }
+
+    /** Lo que cuesta decidir cada ventana clasificada. */
+    @Benchmark
+    public int evaluateScores() {
+        next = (next + 1) & 7;
+        return decision.evaluate(scores[next]);
+    }
+
+    @Benchmark
+    public String buildAlertMessage() {
+        String message = AlertMessageBuilder.build(EmergencyData.DEFAULT_MESSAGE, nextLabel(), "Movimiento últimos 5 min: 445 m, N, 1.9 m/s");
+        return AlertMessageBuilder.withLocation(message, 19.4326, -99.1332, true);
+    }
+
+    /** Lo que cuesta cada cambio de preferencias: la instantánea nueva y su aplicación. */
+    @Benchmark
+    public void rebuildConfig(Blackhole blackhole) {
+        DetectionConfig config = DetectionConfig.fromValues(preferences);
+        decision.apply(config);
+        blackhole.consume(config.getEmergencyData().isComplete());
+        blackhole.consume(config);
+    }
+}